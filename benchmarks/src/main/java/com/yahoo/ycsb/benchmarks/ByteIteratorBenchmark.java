@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.benchmarks;
+
+import com.yahoo.ycsb.RandomByteIterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Generating the value of a field, as a DB reads it. Each thread fills its
+ * own buffer; the random numbers behind the bytes are those of the thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ByteIteratorBenchmark {
+
+    @Param({"100", "1000"})
+    int fieldlength;
+
+    byte[] buffer = new byte[1024];
+    RandomByteIterator reused = new RandomByteIterator(0);
+
+    int fill(RandomByteIterator value) {
+        int read = 0;
+        while (value.hasNext()) {
+            read += value.nextBuf(buffer, 0);
+        }
+        return read;
+    }
+
+    /**
+     * A new iterator per value, as CoreWorkload builds them by default
+     */
+    @Benchmark
+    public int newIterator() {
+        return fill(new RandomByteIterator(fieldlength));
+    }
+
+    /**
+     * The same iterator for every value, as with reuseobjects
+     */
+    @Benchmark
+    public int resetIterator() {
+        reused.reset(fieldlength);
+        return fill(reused);
+    }
+}
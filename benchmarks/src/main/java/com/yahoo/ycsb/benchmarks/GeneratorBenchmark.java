@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.benchmarks;
+
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.CounterGenerator;
+import com.yahoo.ycsb.generator.DiscreteGenerator;
+import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
+import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.SkewedLatestGenerator;
+import com.yahoo.ycsb.generator.ZipfianGenerator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The key and operation choosers of CoreWorkload. The generators are shared
+ * by all the benchmark threads, as they are by the client threads, so that
+ * running with more threads shows the contention on their shared state.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class GeneratorBenchmark {
+
+    static final int ITEMS = 1000000;
+
+    ZipfianGenerator zipfian;
+    ScrambledZipfianGenerator scrambled;
+    HotspotIntegerGenerator hotspot;
+    SkewedLatestGenerator latest;
+    DiscreteGenerator discrete;
+
+    @Setup
+    public void setup() {
+        zipfian = new ZipfianGenerator(ITEMS);
+        scrambled = new ScrambledZipfianGenerator(ITEMS);
+        hotspot = new HotspotIntegerGenerator(0, ITEMS - 1, 0.2, 0.8);
+        latest = new SkewedLatestGenerator(new CounterGenerator(ITEMS));
+        // the mix of workload a
+        discrete = new DiscreteGenerator();
+        discrete.addValue(0.5, "READ");
+        discrete.addValue(0.5, "UPDATE");
+    }
+
+    @Benchmark
+    public int zipfian() {
+        return zipfian.nextInt();
+    }
+
+    @Benchmark
+    public int scrambledZipfian() {
+        return scrambled.nextInt();
+    }
+
+    @Benchmark
+    public int hotspot() {
+        return hotspot.nextInt();
+    }
+
+    @Benchmark
+    public int skewedLatest() {
+        return latest.nextInt();
+    }
+
+    @Benchmark
+    public String discreteString() {
+        return discrete.nextString();
+    }
+
+    @Benchmark
+    public int discreteIndex() {
+        return discrete.nextIndex();
+    }
+}
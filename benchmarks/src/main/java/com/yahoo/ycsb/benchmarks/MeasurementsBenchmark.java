@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.benchmarks;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Recording a latency, with each kind of measurement. All the threads record
+ * into the Measurements singleton, as the client threads do. The singleton is
+ * built once per JVM, so each measurementtype needs its own fork: do not run
+ * this with -f 0.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class MeasurementsBenchmark {
+
+    @Param({"histogram", "hdrhistogram", "timeseries"})
+    String measurementtype;
+
+    Measurements measurements;
+
+    @State(Scope.Thread)
+    public static class Latency {
+        int latency = 0;
+
+        int next() {
+            // 0 to 1023 us, so that the histogram buckets all get hits
+            return latency++ & 1023;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        Properties props = new Properties();
+        props.setProperty("measurementtype", measurementtype);
+        Measurements.setProperties(props);
+        measurements = Measurements.getMeasurements();
+    }
+
+    @Benchmark
+    public void measure(Latency latency) {
+        measurements.measure(Measurements.READ, latency.next());
+    }
+}
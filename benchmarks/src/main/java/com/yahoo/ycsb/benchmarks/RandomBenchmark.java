@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.benchmarks;
+
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.generator.SplitMix64Random;
+import com.yahoo.ycsb.generator.Xoroshiro128PlusRandom;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Drawing a double, as the generators do, from each random number generator:
+ * the java.util.Random of each thread, found through a ThreadLocal as the
+ * generators used to, the random numbers of the thread from Utils, and
+ * sources held by the thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class RandomBenchmark {
+
+    static final ThreadLocal<Random> javaRandom = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random();
+        }
+    };
+
+    SplitMix64Random splitmix = new SplitMix64Random(1);
+    Xoroshiro128PlusRandom xoroshiro = new Xoroshiro128PlusRandom(1);
+
+    @Benchmark
+    public double threadLocalJavaRandom() {
+        return javaRandom.get().nextDouble();
+    }
+
+    @Benchmark
+    public double utilsRandom() {
+        return Utils.random().nextDouble();
+    }
+
+    @Benchmark
+    public double splitmix() {
+        return splitmix.nextDouble();
+    }
+
+    @Benchmark
+    public double xoroshiro() {
+        return xoroshiro.nextDouble();
+    }
+}
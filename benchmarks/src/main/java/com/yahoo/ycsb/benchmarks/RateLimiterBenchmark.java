@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.benchmarks;
+
+import com.yahoo.ycsb.RateLimiter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Taking slots from a RateLimiter shared by all the benchmark threads, as the
+ * client threads share the one of a run, from 1k to 1M ops/sec. When the rate
+ * is kept, the time per operation is the number of threads times 1e9 / rate
+ * ns. The lateness counter adds up how late the operations started after
+ * their slot (ns); divided by the acquired counter, it gives the average.
+ *
+ * Each iteration starts a new schedule, so that the pause between iterations
+ * is not caught up in a burst.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    double rate;
+
+    RateLimiter limiter;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Lateness {
+        public long acquired;
+        public long lateness;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            acquired = 0;
+            lateness = 0;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        limiter = new RateLimiter(rate);
+    }
+
+    @Benchmark
+    public void acquire(Lateness counters) {
+        long due = limiter.acquire();
+        counters.lateness += System.nanoTime() - due;
+        counters.acquired++;
+    }
+}
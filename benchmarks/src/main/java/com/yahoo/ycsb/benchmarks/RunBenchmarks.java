@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the microbenchmarks with one thread and then with many, with the
+ * allocations of each operation reported by the GC profiler (gc.alloc.rate.norm,
+ * in bytes per operation).
+ *
+ * Usage: java -jar benchmarks.jar [regexp] [threads ...]
+ *
+ * By default all the benchmarks are run, with 1 thread and with 4 times the
+ * number of processors. For the full JMH options, run
+ * org.openjdk.jmh.Main from the same jar instead.
+ */
+public class RunBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        String include = (args.length > 0) ? args[0] : ".*";
+        List<Integer> threads = new ArrayList<Integer>();
+        for (int i = 1; i < args.length; i++) {
+            threads.add(Integer.parseInt(args[i]));
+        }
+        if (threads.isEmpty()) {
+            threads.add(1);
+            threads.add(4 * Runtime.getRuntime().availableProcessors());
+        }
+
+        List<RunResult> results = new ArrayList<RunResult>();
+        for (int count : threads) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(count)
+                    .forks(1)
+                    .warmupIterations(3)
+                    .warmupTime(TimeValue.seconds(1))
+                    .measurementIterations(5)
+                    .measurementTime(TimeValue.seconds(1))
+                    .addProfiler(GCProfiler.class)
+                    .build();
+            results.addAll(new Runner(options).run());
+        }
+
+        System.out.println();
+        System.out.println("Benchmark, params, threads, ns/op, bytes/op");
+        for (RunResult result : results) {
+            System.out.println(result.getParams().getBenchmark()
+                    + ", " + params(result)
+                    + ", " + result.getParams().getThreads()
+                    + ", " + String.format("%.1f", result.getPrimaryResult().getScore())
+                    + ", " + String.format("%.1f", alloc(result)));
+        }
+    }
+
+    static String params(RunResult result) {
+        StringBuilder params = new StringBuilder();
+        for (String key : result.getParams().getParamsKeys()) {
+            if (params.length() > 0) {
+                params.append(' ');
+            }
+            params.append(key).append('=').append(result.getParams().getParam(key));
+        }
+        return params.toString();
+    }
+
+    static double alloc(RunResult result) {
+        Result norm = result.getSecondaryResults().get("\u00b7gc.alloc.rate.norm");
+        return (norm != null) ? norm.getScore() : Double.NaN;
+    }
+}
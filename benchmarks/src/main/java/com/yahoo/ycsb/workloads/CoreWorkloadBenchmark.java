@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Building the keys and values of the operations, and whole operations
+ * against a DB that only reads what it is given, with and without
+ * reuseobjects. It is in the package of CoreWorkload to reach the per-thread
+ * state of the workload.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class CoreWorkloadBenchmark {
+
+    @Param({"false", "true"})
+    String reuseobjects;
+
+    CoreWorkload workload;
+
+    /**
+     * Reads the values, as a DB sending them would, and returns
+     */
+    public static class NullDB extends DB {
+
+        byte[] buffer = new byte[1024];
+
+        int consume(HashMap<String, ByteIterator> values) {
+            for (ByteIterator value : values.values()) {
+                while (value.hasNext()) {
+                    value.nextBuf(buffer, 0);
+                }
+            }
+            return 0;
+        }
+
+        public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+            return 0;
+        }
+
+        public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+            return 0;
+        }
+
+        public int update(String table, String key, HashMap<String, ByteIterator> values) {
+            return consume(values);
+        }
+
+        public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+            return consume(values);
+        }
+
+        public int delete(String table, String key) {
+            return 0;
+        }
+    }
+
+    /**
+     * What each client thread has of its own
+     */
+    @State(Scope.Thread)
+    public static class ClientState {
+        CoreWorkload.ThreadState state;
+        DB db = new NullDB();
+        long keynum = 0;
+
+        @Setup
+        public void setup(CoreWorkloadBenchmark benchmark) throws Exception {
+            state = (CoreWorkload.ThreadState) benchmark.workload.initThread(benchmark.workload.properties, 0, 1);
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        Properties props = new Properties();
+        props.setProperty(Client.RECORD_COUNT_PROPERTY, "1000000");
+        props.setProperty(Client.OPERATION_COUNT_PROPERTY, "0");
+        props.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0.5");
+        props.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0.5");
+        props.setProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, "zipfian");
+        props.setProperty(CoreWorkload.REUSE_OBJECTS_PROPERTY, reuseobjects);
+        workload = new CoreWorkload();
+        workload.properties = props;
+        workload.init(props);
+    }
+
+    @Benchmark
+    public String buildKeyName(ClientState client) {
+        return workload.buildKeyName(client.keynum++, client.state);
+    }
+
+    @Benchmark
+    public HashMap<String, ByteIterator> buildValues(ClientState client) {
+        return client.state.values();
+    }
+
+    /**
+     * An operation of workload a: half reads, half updates
+     */
+    @Benchmark
+    public boolean doTransaction(ClientState client) {
+        return workload.doTransaction(client.db, client.state);
+    }
+
+    @Benchmark
+    public boolean doInsert(ClientState client) {
+        return workload.doInsert(client.db, client.state);
+    }
+}
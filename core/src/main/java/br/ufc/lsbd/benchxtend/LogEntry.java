@@ -9,16 +9,24 @@ package br.ufc.lsbd.benchxtend;
  * @author rodrigofelix
  */
 public class LogEntry {
+    // time the change was due at and time it was actually made, both in
+    // microseconds from the beginning of the workload
+    public long targetTime;
     public long time;
     public int numberClients;
     
     public LogEntry(long time, int numberClients){
+        this(time, time, numberClients);
+    }
+    
+    public LogEntry(long targetTime, long time, int numberClients){
+        this.targetTime = targetTime;
         this.time = time;
         this.numberClients = numberClients;
     }
     
     @Override
     public String toString(){
-        return this.time + ","+ this.numberClients;
+        return this.targetTime + "," + this.time + ","+ this.numberClients;
     }
 }
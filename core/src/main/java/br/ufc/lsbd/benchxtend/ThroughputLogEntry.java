@@ -0,0 +1,25 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package br.ufc.lsbd.benchxtend;
+
+/**
+ * Entry of the timeline history when the throughput varies: the target
+ * throughput of a step and the throughput actually achieved in it
+ */
+public class ThroughputLogEntry extends LogEntry {
+    public int target;
+    public double actual;
+
+    public ThroughputLogEntry(long targetTime, long time, int numberClients, int target, double actual) {
+        super(targetTime, time, numberClients);
+        this.target = target;
+        this.actual = actual;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "," + this.target + "," + this.actual;
+    }
+}
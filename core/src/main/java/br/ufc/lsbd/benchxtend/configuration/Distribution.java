@@ -17,5 +17,8 @@ public class Distribution {
     @XStreamAsAttribute
     public String type;
     public ArrayList<Entry> timeline;
+    // target throughput (ops/sec) in each time (in seconds), to vary the load
+    // with a fixed number of clients
+    public ArrayList<Entry> throughput;
     public Elasticity elasticity;
 }
@@ -0,0 +1,69 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package br.ufc.lsbd.benchxtend.manager;
+
+import com.yahoo.ycsb.ClientThread;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The clients of the timeline that are executing operations. Adding a client,
+ * removing one and picking one at random to remove all take constant time:
+ * the clients are kept in an array, with the position of each one, and a
+ * removed client is replaced by the last one. The number of clients can be
+ * read at any time without locking.
+ */
+public class ActiveClients {
+
+    private final ArrayList<ClientThread> clients = new ArrayList<ClientThread>();
+    private final HashMap<ClientThread, Integer> positions = new HashMap<ClientThread, Integer>();
+    private final AtomicInteger count = new AtomicInteger();
+    private final Random random = new Random();
+
+    public synchronized void add(ClientThread client) {
+        if (!positions.containsKey(client)) {
+            positions.put(client, clients.size());
+            clients.add(client);
+            count.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return false if the client was not active
+     */
+    public synchronized boolean remove(ClientThread client) {
+        Integer position = positions.remove(client);
+        if (position == null) {
+            return false;
+        }
+        ClientThread last = clients.remove(clients.size() - 1);
+        if (last != client) {
+            clients.set(position, last);
+            positions.put(last, position);
+        }
+        count.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Remove a client chosen at random
+     *
+     * @return the client, or null if there is none
+     */
+    public synchronized ClientThread removeRandom() {
+        if (clients.isEmpty()) {
+            return null;
+        }
+        ClientThread client = clients.get(random.nextInt(clients.size()));
+        remove(client);
+        return client;
+    }
+
+    public int size() {
+        return count.get();
+    }
+}
@@ -8,17 +8,23 @@ import br.ufc.lsbd.benchxtend.LogEntry;
 import br.ufc.lsbd.benchxtend.configuration.*;
 import com.yahoo.ycsb.ClientThread;
 import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.DBFactory;
+import com.yahoo.ycsb.DBPool;
 import com.yahoo.ycsb.UnknownDBException;
 import com.yahoo.ycsb.Workload;
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.MetricsServer;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.Properties;
 import java.util.Timer;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,7 +34,16 @@ import java.util.logging.Logger;
  */
 public class ClientManager {
 
+    // every client created, active or not
     public Vector<ClientThread> clients;
+    // the clients added by the timeline and not removed yet
+    public ActiveClients activeClients;
+    // the clients executing operations, including the removed ones that have
+    // not stopped yet
+    public AtomicInteger executingClients = new AtomicInteger();
+    // time (in microseconds) each removed client was due to stop at, until
+    // it does
+    ConcurrentHashMap<ClientThread, Long> stopping = new ConcurrentHashMap<ClientThread, Long>();
     public Workload workload;
     public Distribution distribution;
     public Vector<LogEntry> timelineHistory;
@@ -36,16 +51,66 @@ public class ClientManager {
     public int currentTimelineIndex = 0;
     public Timer timer;
     public ScheduledExecutorService executor;
+    public MetricsServer metrics;
+    // runs the clients when they are tasks rather than threads
+    public ExecutorService clientExecutor;
+    // DB instances shared by the clients, if any
+    public DBPool dbPool;
+    // idle clients, taken by the timeline when it adds clients
+    public ClientPool clientPool;
+    /**
+     * How the clients are run: "thread", each client is a thread with its own
+     * DB, or "executor", each client is a task, run by a virtual thread when
+     * the JVM has them (Java 21 and later), and the clients share
+     * db.connections DB instances if it is set. The latter lets a timeline
+     * simulate tens of thousands of clients.
+     */
+    public static final String CLIENT_MODEL = "clientmodel";
+    public static final String CLIENT_MODEL_DEFAULT = "thread";
     // step size (in seconds) to be considered when interpolate
     // between two Entries defined by the user in the config file
     public static float INTERPOLATION_STEP = 1f;
+    // the times of the entries are floats, a little off the times the steps
+    // run at
+    static final float TIME_TOLERANCE = 0.001f;
+    /**
+     * Step of the timeline, in seconds, which may be less than one: the number
+     * of clients (or the target throughput) changes every step, following the
+     * values interpolated between the entries.
+     */
+    public static final String TIMELINE_STEP = "timeline.step";
+    public static final String TIMELINE_STEP_DEFAULT = "1";
+    /**
+     * How far ahead (in seconds) the timeline is looked at to size the pool
+     * of idle clients: it is kept at the peak number of clients within that
+     * time, minus the active ones, so that the clients added start executing
+     * operations right away rather than after connecting.
+     */
+    public static final String LOOKAHEAD = "timeline.lookahead";
+    public static final String LOOKAHEAD_DEFAULT = "10";
+    // number of threads creating the idle clients
+    public static final String SPINUP_THREADS = "timeline.spinupthreads";
+    public static final String SPINUP_THREADS_DEFAULT = "8";
 
     public ClientManager(Distribution distribution, Sla sla, Workload workload) {
         this.clients = new Vector<ClientThread>();
+        this.activeClients = new ActiveClients();
         this.distribution = distribution;
         this.workload = workload;
         this.timelineHistory = new Vector<LogEntry>();
         this.dbName = workload.properties.getProperty("db", "com.yahoo.ycsb.BasicDB");
+        setStep(workload.properties);
+    }
+
+    /**
+     * Set INTERPOLATION_STEP from the timeline.step property
+     */
+    public static void setStep(Properties props) {
+        float step = Float.parseFloat(props.getProperty(TIMELINE_STEP, TIMELINE_STEP_DEFAULT));
+        if (step <= 0) {
+            throw new IllegalArgumentException(TIMELINE_STEP + " must be greater than zero");
+        }
+        INTERPOLATION_STEP = step;
     }
 
     public void init() {
@@ -62,6 +127,29 @@ public class ClientManager {
             generateTimeline();
 
             if (initialValue > 0) {
+                if (workload.properties.getProperty(CLIENT_MODEL, CLIENT_MODEL_DEFAULT).equals("executor")) {
+                    clientExecutor = newClientExecutor();
+                    int connections = Integer.parseInt(workload.properties.getProperty(DBPool.CONNECTIONS, DBPool.CONNECTIONS_DEFAULT));
+                    if (connections > 0) {
+                        try {
+                            dbPool = new DBPool(this.dbName, this.workload.properties, connections);
+                        } catch (Exception e) {
+                            System.out.println("Could not create the DB connections: " + e.getMessage());
+                            System.exit(0);
+                        }
+                    }
+                }
+
+                // the clients of the first steps are ready before the start
+                int threads = Integer.parseInt(workload.properties.getProperty(SPINUP_THREADS, SPINUP_THREADS_DEFAULT));
+                clientPool = new ClientPool(this, threads);
+                try {
+                    clientPool.prepare(getUpcomingPeak(0));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                Logger.getLogger(ClientManager.class.getName()).log(Level.INFO, "Initialized " + clientPool.getIdleCount() + " clients");
+
                 // set the start time of the workload
                 workload.startTime = System.nanoTime();
 
@@ -69,7 +157,11 @@ public class ClientManager {
 
                 // initialise the executor
                 executor = Executors.newSingleThreadScheduledExecutor();
-                executor.scheduleAtFixedRate(new VariationTask(this), 0, 1, TimeUnit.SECONDS);
+                long step = (long) (INTERPOLATION_STEP * 1000000);
+                executor.scheduleAtFixedRate(new VariationTask(this), 0, step, TimeUnit.MICROSECONDS);
+
+                // serves the live metrics, if enabled
+                metrics = MetricsServer.start(workload.properties, clients, true);
             } else {
                 Logger.getLogger(ClientManager.class.getName()).log(Level.SEVERE, "Timeline entry must be greater than zero");
             }
@@ -78,41 +170,72 @@ public class ClientManager {
         }
     }
 
+    /**
+     * Return the peak number of clients of the timeline from the given entry
+     * to the lookahead time after it
+     */
+    public int getUpcomingPeak(int index) {
+        float lookahead = Float.parseFloat(workload.properties.getProperty(LOOKAHEAD, LOOKAHEAD_DEFAULT));
+        ArrayList<Entry> timeline = distribution.timeline;
+        float until = timeline.get(index).time + lookahead + TIME_TOLERANCE;
+        int peak = timeline.get(index).value;
+        for (int i = index + 1; i < timeline.size() && timeline.get(i).time <= until; i++) {
+            peak = Math.max(peak, timeline.get(i).value);
+        }
+        return peak;
+    }
+
+    /**
+     * Create the DB of a new client. It is not initialized.
+     */
+    DB newDB() throws UnknownDBException {
+        if (dbPool != null) {
+            return dbPool.newClientDB();
+        }
+        return DBFactory.newDB(this.dbName, this.workload.properties);
+    }
+
+    /**
+     * Start a client, as a thread or as a task depending on the client model
+     */
+    void start(ClientThread client) {
+        if (clientExecutor != null) {
+            clientExecutor.execute(client);
+        } else {
+            client.start();
+        }
+    }
+
     public void add() {
         add(1);
     }
 
     public void add(int number) {
+        add(number, getIntervalFromBeginning());
+    }
+
+    /**
+     * Add clients, logging the change as due at targetTime (in microseconds
+     * from the beginning of the workload)
+     */
+    public void add(int number, long targetTime) {
         if (number > 0) {
             for (int i = 0; i < number; i++) {
 
-                // creates the connection before start the thread to measure only
-                // the time to execute the queries, not counting open connection time
-                DB db = null;
                 try {
-                    db = DBFactory.newDB(this.dbName, this.workload.properties);
+                    // hands over an idle client, whose connection is already
+                    // open, so that only the time to execute the queries is
+                    // measured. a client created on the spot may finish
+                    // right away, it is registered first
+                    synchronized (this) {
+                        activeClients.add(clientPool.activate());
+
+                        // adds a new entry in the history
+                        timelineHistory.add(new LogEntry(targetTime, getIntervalFromBeginning(), executingClients.incrementAndGet()));
+                    }
                 } catch (UnknownDBException e) {
                     System.out.println("Unknown DB " + this.dbName);
                     System.exit(0);
-                }
-
-                ClientThread client = new ClientThread(db, this.workload.dotransactions, workload, i, number, this.workload.properties, -1, -1);
-                clients.add(client);
-
-                int total_active = 0;
-
-                // gets the list of active clients
-                for (int j = 0; j < this.clients.size(); j++) {
-                    if (!this.clients.get(j).isStopRequested()) {
-                        total_active++;
-                    }
-                }
-
-                try {
-                    // starts the thread that will send the queries
-                    client.start();
-                    // adds a new entry in the history
-                    timelineHistory.add(new LogEntry(getIntervalFromBeginning(), total_active));
                 } catch (Exception ex) {
                     Logger.getLogger(ClientManager.class.getName()).log(Level.WARNING, "Error when executing a client");
                 }
@@ -126,33 +249,91 @@ public class ClientManager {
         remove(1);
     }
 
-    public void remove(int number) {
-        if (number > 0) {
-            Random generator;
-            ArrayList<Integer> active;
-            for (int i = 0; i < number; i++) {
-                // selects a random client to be removed
-                generator = new Random();
+    /**
+     * Wait for all the clients to be done, then release what they shared.
+     */
+    public void awaitClients() {
+        if (clientPool != null) {
+            clientPool.close();
+        }
+        for (ClientThread t : clients) {
+            try {
+                t.awaitCompletion();
+            } catch (InterruptedException e) {
+                e.printStackTrace(System.out);
+            }
+        }
+        if (clientExecutor != null) {
+            clientExecutor.shutdown();
+        }
+        if (dbPool != null) {
+            try {
+                dbPool.close();
+            } catch (DBException e) {
+                e.printStackTrace(System.out);
+            }
+        }
+    }
 
-                active = new ArrayList<Integer>();
+    /**
+     * Return an executor running each task in a new virtual thread if the JVM
+     * supports them, or else in a pooled thread, reused once its client is
+     * removed. Looked up by reflection, so that the client still runs on older
+     * JVMs.
+     */
+    static ExecutorService newClientExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            Logger.getLogger(ClientManager.class.getName()).log(Level.INFO, "Running the clients in virtual threads");
+            return executor;
+        } catch (Exception e) {
+            Logger.getLogger(ClientManager.class.getName()).log(Level.INFO, "Virtual threads are not supported, running the clients in a thread pool");
+            return Executors.newCachedThreadPool();
+        }
+    }
 
-                // gets the list of active clients
-                for (int j = 0; j < this.clients.size(); j++) {
-                    if (!this.clients.get(j).isStopRequested()) {
-                        active.add(j);
-                    }
-                }
+    public void remove(int number) {
+        remove(number, getIntervalFromBeginning());
+    }
 
-                int index = generator.nextInt(active.size());
-                if (index > -1) {
-                    this.clients.get(active.get(index)).setStopRequested(true);
-                    // adds a new entry in the history
-                    timelineHistory.add(new LogEntry(getIntervalFromBeginning(), active.size()));
+    /**
+     * Remove clients, logging the change as due at targetTime (in microseconds
+     * from the beginning of the workload)
+     */
+    public void remove(int number, long targetTime) {
+        if (number > 0) {
+            for (int i = 0; i < number; i++) {
+                // selects a random client to be removed. the history entry
+                // is added once it has actually stopped
+                ClientThread client = activeClients.removeRandom();
+                if (client != null) {
+                    stopping.put(client, targetTime);
+                    client.setStopRequested(true);
                 }
             }
         }
     }
 
+    /**
+     * Log a removed client in the history, at the time it stopped executing
+     * operations. Called by the client.
+     */
+    void deactivated(ClientThread client) {
+        Long targetTime = stopping.remove(client);
+        long time = getIntervalFromBeginning();
+        timelineHistory.add(new LogEntry(targetTime != null ? targetTime : time, time, executingClients.decrementAndGet()));
+    }
+
+    /**
+     * Take out of the timeline a client that stopped on its own, the workload
+     * having no more operations for it, and log it in the history. Called by
+     * the client.
+     */
+    synchronized void finished(ClientThread client) {
+        activeClients.remove(client);
+        deactivated(client);
+    }
+
     public long getIntervalFromBeginning() {
         return (long) ((System.nanoTime() - this.workload.startTime) / 1000);
     }
@@ -161,47 +342,45 @@ public class ClientManager {
         return (long) ((System.nanoTime() - startTime) / 1000);
     }
 
-    public void generateTimeline() {
-        ArrayList<Entry> originalEntries = new ArrayList<Entry>();
-
-        // makes a deep copy of original entries
-        for (int i = 0; i < this.distribution.timeline.size(); i++) {
-            originalEntries.add(new Entry(this.distribution.timeline.get(i).time, this.distribution.timeline.get(i).value));
+    /**
+     * Return the last entry of the timeline due at the given time, in seconds
+     * from the beginning of the workload, looking from the given entry on
+     */
+    public static int getDueIndex(ArrayList<Entry> timeline, int from, float elapsed) {
+        int index = from;
+        while (index < timeline.size() - 1 && timeline.get(index + 1).time <= elapsed + TIME_TOLERANCE) {
+            index++;
         }
+        return index;
+    }
 
-        Entry current;
-        Entry next;
-        int count = 0;
-        // defines the step between each two points
-        for (int i = 0; i < originalEntries.size(); i++) {
-            // skips the last point
-            if (i != originalEntries.size() - 1) {
-                // gets the two entries that will be considered as initial and final values
-                current = originalEntries.get(i);
-                next = originalEntries.get(i + 1);
-
-                // calculates the number of steps
-                if (current.time > next.time) {
-                    Logger.getLogger(ClientManager.class.getName()).log(Level.SEVERE, "Entries in the timeline must have ascending time values");
-                } else {
-                    // increments the count to insert new items in the correct position
-                    count++;
-
-                    // truncates the value if not integer
-                    int steps = (int) ((next.time - current.time) / INTERPOLATION_STEP) - 1;
-
-                    Entry newItem;
-                    // create the intermediate values according to the distribution type
-                    for (int j = 0; j < steps; j++) {
-                        // calculates the y value (ie. the number of clients) and creates a new entry
-                        newItem = new Entry(current.time + (((float) j + 1f) * INTERPOLATION_STEP), Interpolation.getIntermediateValue(current, next, j + 1, INTERPOLATION_STEP, this.distribution.type));
-                        // adds the new entry in the right position to keep it ordered ascendly
-                        this.distribution.timeline.add(count, newItem);
-                        // increments the count to insert new items in the correct position
-                        count++;
-                    }
-                }
-            }
-        }
+    /**
+     * Return the time the given entry of the timeline is due at, in
+     * microseconds from the beginning of the workload
+     */
+    public static long getEntryTime(Entry entry) {
+        return Math.round((double) entry.time * 1e6);
+    }
+
+    /**
+     * Return the step of the timeline due at the given time, in nanoseconds
+     * from the beginning of the workload
+     */
+    public static int getStep(long elapsed) {
+        return (int) Math.round(elapsed / (INTERPOLATION_STEP * 1e9));
+    }
+
+    /**
+     * Return the time the given step of the timeline is due at, in
+     * microseconds from the beginning of the workload
+     */
+    public static long getStepTime(int step) {
+        return (long) (step * (double) INTERPOLATION_STEP * 1e6);
+    }
+
+    public void generateTimeline() {
+        // inserts intermediate values between each two entries, keeping them
+        // ordered ascendly
+        this.distribution.timeline = Interpolation.interpolate(this.distribution.timeline, INTERPOLATION_STEP, this.distribution.type);
     }
 }
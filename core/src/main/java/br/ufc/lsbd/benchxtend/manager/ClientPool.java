@@ -0,0 +1,204 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package br.ufc.lsbd.benchxtend.manager;
+
+import com.yahoo.ycsb.ClientThread;
+import com.yahoo.ycsb.DB;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Idle clients of the timeline, ready to execute operations: their thread is
+ * started and their DB initialized, so that adding a client is only handing
+ * one over, and the time the timeline measures does not include connecting to
+ * the database. Removed clients come back here rather than being torn down.
+ *
+ * The pool is topped up in the background by the spin-up threads, to the
+ * number of clients the timeline is about to add. A client activated while
+ * the pool is empty is created on the spot.
+ */
+public class ClientPool {
+
+    final ClientManager manager;
+    final ConcurrentLinkedQueue<ClientThread> idle = new ConcurrentLinkedQueue<ClientThread>();
+    // clients idle, and being created to be
+    final AtomicInteger idleCount = new AtomicInteger();
+    final AtomicInteger pending = new AtomicInteger();
+    final AtomicInteger ids = new AtomicInteger();
+    final ExecutorService spinup;
+    volatile boolean closed = false;
+
+    public ClientPool(ClientManager manager, int threads) {
+        this.manager = manager;
+        this.spinup = Executors.newFixedThreadPool(Math.max(1, threads));
+    }
+
+    /**
+     * Create clients in the background until there are at least the given
+     * number idle
+     */
+    public void ensure(int size) {
+        while (!closed) {
+            // a created client stops being pending before it is idle, so
+            // reading idle first may miss it, but never counts it twice
+            int i = idleCount.get();
+            int p = pending.get();
+            if (i + p >= size) {
+                return;
+            }
+            if (pending.compareAndSet(p, p + 1)) {
+                try {
+                    spinup.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            ClientThread client = null;
+                            try {
+                                client = createIdle();
+                            } finally {
+                                synchronized (ClientPool.this) {
+                                    pending.decrementAndGet();
+                                    if (client != null) {
+                                        offer(client);
+                                    }
+                                    ClientPool.this.notifyAll();
+                                }
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // closed in the meantime, the client will not be created
+                    synchronized (this) {
+                        pending.decrementAndGet();
+                        notifyAll();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Create clients until there are the given number idle, and wait for them
+     */
+    public synchronized void prepare(int size) throws InterruptedException {
+        ensure(size);
+        while (pending.get() > 0) {
+            wait();
+        }
+    }
+
+    /**
+     * @return the client started and waiting to be activated, or null if its
+     * DB or its workload state could not be initialized
+     */
+    private ClientThread createIdle() {
+        DB db;
+        try {
+            db = manager.newDB();
+            db.init();
+        } catch (Exception e) {
+            Logger.getLogger(ClientPool.class.getName()).log(Level.WARNING, "Could not initialize a DB: " + e);
+            return null;
+        }
+        ClientThread client = newClient(db);
+        client.setDBInitialized();
+        client.setStopRequested(true);
+        manager.start(client);
+        // the workload state is set up on the thread of the client, which
+        // is only offered once it is
+        try {
+            if (!client.awaitInitialized()) {
+                manager.clients.remove(client);
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return client;
+    }
+
+    private ClientThread newClient(DB db) {
+        ClientThread client = new ClientThread(db, manager.workload.dotransactions, manager.workload, ids.getAndIncrement(), 1, manager.workload.properties, -1, -1);
+        client.setPool(this);
+        manager.clients.add(client);
+        return client;
+    }
+
+    /**
+     * Hand over an idle client, which starts executing operations, or create
+     * one if there is none left.
+     */
+    public ClientThread activate() throws Exception {
+        ClientThread client = idle.poll();
+        if (client != null) {
+            idleCount.decrementAndGet();
+            client.activate();
+        } else {
+            // connects on its own thread, as clients did before the pool
+            client = newClient(manager.newDB());
+            client.activate();
+            manager.start(client);
+        }
+        return client;
+    }
+
+    /**
+     * Take back a client that was removed from the timeline. Called by the
+     * client once it has stopped executing operations.
+     */
+    public void release(ClientThread client) {
+        manager.deactivated(client);
+        offer(client);
+    }
+
+    /**
+     * Take out of the timeline a client the workload has no more operations
+     * for. It is not taken back, and finishes. Called by the client.
+     */
+    public void finished(ClientThread client) {
+        manager.finished(client);
+    }
+
+    private void offer(ClientThread client) {
+        idle.offer(client);
+        idleCount.incrementAndGet();
+        if (closed) {
+            retireIdle();
+        }
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    /**
+     * Retire the idle clients and those that come back from now on, which
+     * then close their DB and finish
+     */
+    public void close() {
+        closed = true;
+        spinup.shutdown();
+        try {
+            spinup.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        retireIdle();
+    }
+
+    private void retireIdle() {
+        ClientThread client;
+        while ((client = idle.poll()) != null) {
+            idleCount.decrementAndGet();
+            client.retire();
+        }
+    }
+}
@@ -8,7 +8,10 @@ import br.ufc.lsbd.benchxtend.configuration.Entry;
 import cern.jet.random.Poisson;
 import cern.jet.random.engine.DRand;
 import cern.jet.random.engine.RandomEngine;
+import java.util.ArrayList;
 import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  *
@@ -39,6 +42,47 @@ public class Interpolation {
         }
     }
 
+    /**
+     * Returns the entries with intermediate values inserted between each two of
+     * them, every step seconds, according to the distribution type
+     *
+     * @param entries the entries defined by the user, in ascending time order
+     * @param step
+     * @param type
+     * @return
+     */
+    public static ArrayList<Entry> interpolate(ArrayList<Entry> entries, float step, String type) {
+        ArrayList<Entry> result = new ArrayList<Entry>();
+
+        Entry current;
+        Entry next;
+        for (int i = 0; i < entries.size(); i++) {
+            current = entries.get(i);
+            result.add(new Entry(current.time, current.value));
+
+            // skips the last point
+            if (i != entries.size() - 1) {
+                next = entries.get(i + 1);
+
+                // calculates the number of steps
+                if (current.time > next.time) {
+                    Logger.getLogger(Interpolation.class.getName()).log(Level.SEVERE, "Entries in the timeline must have ascending time values");
+                } else {
+                    // rounds the value if not integer, so that a spacing that
+                    // is a multiple of the step is not one step short
+                    int steps = Math.round((next.time - current.time) / step) - 1;
+
+                    // create the intermediate values according to the distribution type
+                    for (int j = 0; j < steps; j++) {
+                        // calculates the y value and creates a new entry
+                        result.add(new Entry(current.time + (((float) j + 1f) * step), getIntermediateValue(current, next, j + 1, step, type)));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
     private static int getPoissonValue(float lambda) {        
         RandomEngine engine = new DRand((new Random()).nextInt());
         Poisson poisson = new Poisson((double) lambda, engine);
@@ -0,0 +1,143 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package br.ufc.lsbd.benchxtend.manager;
+
+import br.ufc.lsbd.benchxtend.ExecutionLog;
+import br.ufc.lsbd.benchxtend.LogEntry;
+import br.ufc.lsbd.benchxtend.ThroughputLogEntry;
+import br.ufc.lsbd.benchxtend.configuration.Distribution;
+import br.ufc.lsbd.benchxtend.configuration.Entry;
+import com.yahoo.ycsb.ClientThread;
+import com.yahoo.ycsb.RateLimiter;
+import com.yahoo.ycsb.Workload;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Vector;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Varies the target throughput of a fixed number of clients along the
+ * throughput timeline of the distribution, the way VariationTask varies the
+ * number of clients: every INTERPOLATION_STEP seconds, the rate limiter shared
+ * by the clients is set to the value of the timeline at that time, with the
+ * intermediate values between the entries given by the distribution type
+ * (linear, poisson). The first value holds from the start to the first entry.
+ * Once the last entry is reached, the workload is asked to stop.
+ *
+ * Each step is logged in the timeline history with its target and the
+ * throughput actually achieved.
+ */
+public class ThroughputTask implements Runnable {
+
+    public ArrayList<Entry> timeline;
+    public RateLimiter limiter;
+    public Vector<Thread> clients;
+    public Workload workload;
+    public Vector<LogEntry> timelineHistory;
+    public ScheduledExecutorService executor;
+    public int currentTimelineIndex = 0;
+    long startTime;
+    long lastTime;
+    long lastOps;
+    int lastTarget;
+    long lastTargetTime;
+    boolean started = false;
+    DateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
+
+    public ThroughputTask(Distribution distribution, RateLimiter limiter, Vector<Thread> clients, Workload workload) {
+        ClientManager.setStep(workload.properties);
+        ArrayList<Entry> entries = new ArrayList<Entry>(distribution.throughput);
+        if (entries.get(0).time > 0) {
+            entries.add(0, new Entry(0f, entries.get(0).value));
+        }
+        this.timeline = Interpolation.interpolate(entries, ClientManager.INTERPOLATION_STEP, distribution.type);
+        this.limiter = limiter;
+        this.clients = clients;
+        this.workload = workload;
+        this.timelineHistory = new Vector<LogEntry>();
+    }
+
+    /**
+     * Returns the throughput to start with, before the task is started
+     */
+    public int getInitialTarget() {
+        return target(timeline.get(0));
+    }
+
+    /**
+     * Starts varying the throughput, from now on
+     */
+    public void start() {
+        lastTarget = getInitialTarget();
+        startTime = System.nanoTime();
+        lastTime = startTime;
+        executor = Executors.newSingleThreadScheduledExecutor();
+        long step = (long) (ClientManager.INTERPOLATION_STEP * 1000000);
+        executor.scheduleAtFixedRate(this, 0, step, TimeUnit.MICROSECONDS);
+    }
+
+    static int target(Entry entry) {
+        // a limiter with no rate does not limit at all, so the lowest
+        // throughput is 1 ops/sec
+        return Math.max(1, entry.value);
+    }
+
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        long ops = 0;
+        for (int i = 0; i < clients.size(); i++) {
+            ops += ((ClientThread) clients.get(i)).getOpsDone();
+        }
+
+        // logs the step that just ended
+        if (started && now > lastTime) {
+            double actual = (ops - lastOps) * 1e9 / (now - lastTime);
+            timelineHistory.add(new ThroughputLogEntry(lastTargetTime, ClientManager.getIntervalFromBeginning(startTime), clients.size(), lastTarget, actual));
+        }
+        lastOps = ops;
+        lastTime = now;
+        lastTargetTime = ClientManager.getStepTime(ClientManager.getStep(now - startTime));
+
+        float elapsed = (now - startTime) / 1e9f;
+        if (started && elapsed >= timeline.get(timeline.size() - 1).time) {
+            output("Reached the end of the throughput timeline");
+            workload.requestStop();
+            executor.shutdown();
+            return;
+        }
+
+        // gets the entry defined for the current time
+        currentTimelineIndex = ClientManager.getDueIndex(timeline, currentTimelineIndex, elapsed);
+        int target = target(timeline.get(currentTimelineIndex));
+        if (target != lastTarget) {
+            output("Changing throughput from " + lastTarget + " to " + target + " ops/sec");
+            limiter.setRate(target);
+        } else {
+            output("Keeping " + target + " ops/sec");
+        }
+        lastTarget = target;
+        started = true;
+    }
+
+    /**
+     * Prints the timeline history, once the clients are done
+     */
+    public void persist() {
+        System.out.println("-------------------------------");
+        System.out.println("Printing target time, time, # of clients, target ops/sec, actual ops/sec");
+        ExecutionLog.persist(timelineHistory, ExecutionLog.TIMELINE);
+        System.out.println("-------------------------------");
+    }
+
+    public void output(String value) {
+        Date date = new Date();
+        System.out.println(new StringBuilder("[").append(dateFormat.format(date)).append("]").append(" ").append(value));
+    }
+}
@@ -8,7 +8,7 @@ package br.ufc.lsbd.benchxtend.manager;
 import br.ufc.lsbd.benchxtend.ExecutionLog;
 import br.ufc.lsbd.benchxtend.LogEntry;
 import com.yahoo.ycsb.Client;
-import com.yahoo.ycsb.ClientThread;
+import com.yahoo.ycsb.WorkloadException;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
@@ -29,32 +29,42 @@ public class VariationTask implements Runnable {
 
     @Override
     public void run() {
-        if (manager.currentTimelineIndex < manager.distribution.timeline.size() - 1) {
+        int last = manager.distribution.timeline.size() - 1;
+
+        // the entry due now is given by the time elapsed and the times of the
+        // entries rather than by the number of runs, so that a late run skips
+        // the entries already over and the timeline does not drift
+        long elapsed = System.nanoTime() - manager.workload.startTime;
+        int next = ClientManager.getDueIndex(manager.distribution.timeline, manager.currentTimelineIndex, elapsed / 1e9f);
+
+        // logs the time of the entry applied, or of this run if there is none
+        long targetTime;
+        if (next > manager.currentTimelineIndex) {
+            targetTime = ClientManager.getEntryTime(manager.distribution.timeline.get(next));
+        } else {
+            targetTime = ClientManager.getStepTime(ClientManager.getStep(elapsed));
+        }
+
+        if (manager.currentTimelineIndex < last) {
+            if (next > manager.currentTimelineIndex + 1) {
+                output("Skipping " + (next - manager.currentTimelineIndex - 1) + " late steps");
+            }
+
             // gets the current number of clients
             int current = manager.distribution.timeline.get(manager.currentTimelineIndex).value;
 
             // gets the aimed number of clients
-            int goal = manager.distribution.timeline.get(manager.currentTimelineIndex + 1).value;
+            int goal = manager.distribution.timeline.get(next).value;
 
             // takes the decision of adding or removing clients
             if (current > goal) {
-                manager.remove(current - goal);
+                manager.remove(current - goal, targetTime);
             } else if (current < goal) {
-                manager.add(goal - current);
+                manager.add(goal - current, targetTime);
             } else {
                 // in this case, there is no need to change the number of clients, but
                 // there must be logged the number of clients was kept the same
-                int total_active = 0;
-
-                // gets the list of active clients
-                for (int j = 0; j < manager.clients.size(); j++) {
-                    if (!manager.clients.get(j).isStopRequested()) {
-                        total_active++;
-                    }
-                }
-                
-                // adds a new entry in the history
-                manager.timelineHistory.add(new LogEntry(ClientManager.getIntervalFromBeginning(manager.workload.startTime), total_active));
+                manager.timelineHistory.add(new LogEntry(targetTime, ClientManager.getIntervalFromBeginning(manager.workload.startTime), manager.executingClients.get()));
             }
 
             if (current != goal) {
@@ -63,32 +73,39 @@ public class VariationTask implements Runnable {
                 output("Keeping " + current + " clients");
             }
 
-            manager.currentTimelineIndex++;
+            manager.currentTimelineIndex = next;
+
+            // gets the clients of the next steps ready
+            manager.clientPool.ensure(manager.getUpcomingPeak(next) - goal);
         } else {
             // gets the last number of clients
-            int last = manager.distribution.timeline.get(manager.currentTimelineIndex).value;
+            int lastValue = manager.distribution.timeline.get(manager.currentTimelineIndex).value;
 
-            output("Removing last " + last + " clients");
+            output("Removing last " + lastValue + " clients");
 
             // removes all the clients
-            manager.remove(last);
-
-            for (ClientThread t : manager.clients) {
-                try {
-                    // wait for all threads to be completed
-                    t.join();
-                } catch (InterruptedException e) {
-                    e.printStackTrace(System.out);
-                }
+            manager.remove(lastValue, targetTime);
+
+            // wait for all threads to be completed
+            manager.awaitClients();
+
+            try {
+                manager.workload.cleanup();
+            } catch (WorkloadException e) {
+                output("Could not clean up the workload, error: " + e.getMessage());
             }
 
             // when everything is finished, shutdown the executor
             manager.executor.shutdown();
 
+            if (manager.metrics != null) {
+                manager.metrics.stop();
+            }
+
             long endTime = System.nanoTime();
 
             System.out.println("-------------------------------");
-            System.out.println("Printing time, # of clients");
+            System.out.println("Printing target time, time, # of clients");
 
             // ExecutionLog.persist(manager.workload.measurements, ExecutionLog.EXECUTION);
             // TODO: figure out why this must be called before exportMeasurements 
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import br.ufc.lsbd.benchxtend.configuration.Distribution;
+import br.ufc.lsbd.benchxtend.configuration.Entry;
+import com.yahoo.ycsb.generator.RandomSource;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generates the arrivals of an open-loop run: operations arrive at a given
+ * rate whether or not the previous ones are done, as the requests of real
+ * users do, so the load offered does not drop when the database slows down.
+ *
+ * Each arrival is queued with the time it arrived at, and executed by the
+ * first of the client threads (the workers) to be free. The time it waited in
+ * the queue is recorded under the QUEUE operation, and its response time is
+ * measured from its arrival (see measurement.interval in Measurements). The
+ * queue is not bounded: if the workers cannot keep up, the arrivals pile up
+ * and the response times grow, which is what the run is meant to show.
+ *
+ * The arrival process is set by the "arrivals" property: "constant" for
+ * evenly spaced arrivals, or "poisson" for exponentially distributed times
+ * between them. The rate is "arrivalrate" operations per second or, if a
+ * timeline is given, its values read as operations per second, interpolated
+ * linearly from 0 at the start to each entry in turn; the run then ends with
+ * the last entry.
+ */
+public class ArrivalScheduler extends Thread {
+
+    public static final String ARRIVALS = "arrivals";
+    public static final String ARRIVAL_RATE = "arrivalrate";
+    /**
+     * Name of the operation the queueing delays are recorded under.
+     */
+    public static final String QUEUE = "QUEUE";
+    /**
+     * Taken by each worker once there are no more arrivals.
+     */
+    public static final long STOP = Long.MIN_VALUE;
+    // step the rate of a timeline is integrated with
+    static final long STEP_NS = 1000000;
+    // longest single wait, to notice a stop request in time
+    static final long MAX_WAIT_NS = 100000000;
+    // apart from the streams of the client threads, numbered from 0
+    static final long ARRIVALS_STREAM = -1;
+    BlockingQueue<Long> _queue;
+    int _workers;
+    int _opcount;
+    Workload _workload;
+    boolean _poisson;
+    double _rate;
+    Distribution _timeline;
+    RandomSource _random;
+
+    /**
+     * @param props the properties of the run
+     * @param timeline the timeline giving the rate, or null to use arrivalrate
+     * @param workers the number of client threads taking the arrivals
+     * @param opcount the number of arrivals, or 0 for no limit; ignored with
+     * a timeline
+     * @param workload the workload, to know when a stop is requested
+     */
+    public ArrivalScheduler(Properties props, Distribution timeline, int workers, int opcount, Workload workload) {
+        super("arrivals");
+        String arrivals = props.getProperty(ARRIVALS);
+        if (arrivals.compareTo("poisson") == 0) {
+            _poisson = true;
+        } else if (arrivals.compareTo("constant") != 0) {
+            System.out.println("ERROR: Unknown " + ARRIVALS + " " + arrivals + ". Constant arrivals will be used.");
+        }
+        _rate = Double.parseDouble(props.getProperty(ARRIVAL_RATE, "0"));
+        if (timeline == null && _rate <= 0) {
+            throw new IllegalArgumentException(ARRIVAL_RATE + " must be greater than zero");
+        }
+        _timeline = timeline;
+        _workers = workers;
+        _opcount = (timeline == null) ? opcount : 0;
+        _workload = workload;
+        _queue = new LinkedBlockingQueue<Long>();
+        _random = Utils.random(ARRIVALS_STREAM);
+    }
+
+    /**
+     * Wait for the next arrival and return the time (System.nanoTime()) it
+     * arrived at, or STOP if there are no more.
+     */
+    public long take() throws InterruptedException {
+        return _queue.take();
+    }
+
+    /**
+     * Return the rate, in operations per second, the given time after the
+     * start, or -1 if the timeline is over.
+     */
+    double rate(long elapsed) {
+        if (_timeline == null) {
+            return _rate;
+        }
+        float time = elapsed / 1e9f;
+        Entry previous = new Entry(0f, 0);
+        for (Entry entry : _timeline.timeline) {
+            if (time < entry.time) {
+                return previous.value + (entry.value - previous.value) * (time - previous.time) / (entry.time - previous.time);
+            }
+            previous = entry;
+        }
+        return -1;
+    }
+
+    /**
+     * Return the time of the arrival after the one at the given time, or STOP
+     * if the timeline is over.
+     */
+    long next(long start, long previous) {
+        // number of arrivals the rate must account for until the next one:
+        // exactly one, or exponentially distributed for a Poisson process
+        double needed = _poisson ? -Math.log(1 - _random.nextDouble()) : 1;
+        if (_timeline == null) {
+            return previous + (long) (needed * 1e9 / _rate);
+        }
+        // the rate changes over time, so it is integrated step by step
+        long next = previous;
+        while (needed > 0) {
+            double rate = rate(next - start);
+            if (rate < 0) {
+                return STOP;
+            }
+            long step = (rate > 0) ? Math.min(STEP_NS, (long) Math.ceil(needed * 1e9 / rate)) : STEP_NS;
+            needed -= rate * step / 1e9;
+            next += step;
+        }
+        return next;
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        long next = start;
+        int issued = 0;
+        while ((_opcount == 0 || issued < _opcount) && !_workload.isStopRequested()) {
+            next = next(start, next);
+            if (next == STOP || !await(next)) {
+                break;
+            }
+            _queue.add(next);
+            issued++;
+        }
+        for (int i = 0; i < _workers; i++) {
+            _queue.add(STOP);
+        }
+    }
+
+    /**
+     * Wait until the given time, and return false if a stop was requested
+     * meanwhile.
+     */
+    boolean await(long deadline) {
+        long now;
+        while ((now = System.nanoTime()) < deadline) {
+            if (_workload.isStopRequested() || isInterrupted()) {
+                return false;
+            }
+            LockSupport.parkNanos(Math.min(deadline - now, MAX_WAIT_NS));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A layer for accessing a database that does not block while an operation is
+ * being executed: each operation only submits the request and returns, and
+ * the return code is given to a Callback once the database answered. This
+ * lets a client thread keep several operations in flight (see the "inflight"
+ * property of DBWrapper) instead of needing one thread per outstanding
+ * request.
+ *
+ * As with DB, there is one instance per client thread, but the callbacks may
+ * be called from any thread, e.g. the I/O threads of the database driver. The
+ * results of an operation are only filled in when its callback is called. An
+ * operation that fails must still call its callback, with a non-zero code,
+ * rather than throw.
+ *
+ * The blocking methods of DB are implemented by waiting for the callback, so
+ * an AsyncDB can also be used where a DB is expected.
+ */
+public abstract class AsyncDB extends DB {
+
+    /**
+     * Error code returned by the blocking methods when the calling thread was
+     * interrupted while waiting.
+     */
+    public static final int INTERRUPTED = -2;
+
+    /**
+     * Receives the result of an operation.
+     */
+    public interface Callback {
+
+        /**
+         * Called once, when the operation is done.
+         *
+         * @param result Zero on success, a non-zero error code on error
+         */
+        void completed(int result);
+    }
+
+    /**
+     * Callback the blocking methods wait on.
+     */
+    static class BlockingCallback implements Callback {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile int result;
+
+        @Override
+        public void completed(int result) {
+            this.result = result;
+            done.countDown();
+        }
+
+        int await() {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return INTERRUPTED;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Read a record from the database. Each field/value pair from the result
+     * will be stored in a HashMap.
+     *
+     * @param table The name of the table
+     * @param key The record key of the record to read.
+     * @param fields The list of fields to read, or null for all of them
+     * @param result A HashMap of field/value pairs for the result
+     * @param callback Called when the read is done
+     */
+    public abstract void readAsync(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result, Callback callback);
+
+    /**
+     * Perform a range scan for a set of records in the database. Each
+     * field/value pair from the result will be stored in a HashMap.
+     *
+     * @param table The name of the table
+     * @param startkey The record key of the first record to read.
+     * @param recordcount The number of records to read
+     * @param fields The list of fields to read, or null for all of them
+     * @param result A Vector of HashMaps, where each HashMap is a set
+     * field/value pairs for one record
+     * @param callback Called when the scan is done
+     */
+    public abstract void scanAsync(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result, Callback callback);
+
+    /**
+     * Update a record in the database. Any field/value pairs in the specified
+     * values HashMap will be written into the record with the specified record
+     * key, overwriting any existing values with the same field name.
+     *
+     * @param table The name of the table
+     * @param key The record key of the record to write.
+     * @param values A HashMap of field/value pairs to update in the record
+     * @param callback Called when the update is done
+     */
+    public abstract void updateAsync(String table, String key, HashMap<String, ByteIterator> values, Callback callback);
+
+    /**
+     * Insert a record in the database. Any field/value pairs in the specified
+     * values HashMap will be written into the record with the specified record
+     * key.
+     *
+     * @param table The name of the table
+     * @param key The record key of the record to insert.
+     * @param values A HashMap of field/value pairs to insert in the record
+     * @param callback Called when the insert is done
+     */
+    public abstract void insertAsync(String table, String key, HashMap<String, ByteIterator> values, Callback callback);
+
+    /**
+     * Delete a record from the database.
+     *
+     * @param table The name of the table
+     * @param key The record key of the record to delete.
+     * @param callback Called when the delete is done
+     */
+    public abstract void deleteAsync(String table, String key, Callback callback);
+
+    @Override
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+        BlockingCallback callback = new BlockingCallback();
+        readAsync(table, key, fields, result, callback);
+        return callback.await();
+    }
+
+    @Override
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+        BlockingCallback callback = new BlockingCallback();
+        scanAsync(table, startkey, recordcount, fields, result, callback);
+        return callback.await();
+    }
+
+    @Override
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+        BlockingCallback callback = new BlockingCallback();
+        updateAsync(table, key, values, callback);
+        return callback.await();
+    }
+
+    @Override
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+        BlockingCallback callback = new BlockingCallback();
+        insertAsync(table, key, values, callback);
+        return callback.await();
+    }
+
+    @Override
+    public int delete(String table, String key) {
+        BlockingCallback callback = new BlockingCallback();
+        deleteAsync(table, key, callback);
+        return callback.await();
+    }
+}
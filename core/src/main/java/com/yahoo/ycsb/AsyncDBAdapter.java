@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+/**
+ * Lets a blocking DB be used as an AsyncDB: each operation is executed in the
+ * calling thread, and its callback is called before it returns. Nothing is
+ * gained by keeping several operations in flight with it, but the bindings
+ * that have no asynchronous driver keep working in that mode.
+ */
+public class AsyncDBAdapter extends AsyncDB {
+
+    DB _db;
+
+    public AsyncDBAdapter(DB db) {
+        _db = db;
+    }
+
+    @Override
+    public void setProperties(Properties p) {
+        _db.setProperties(p);
+    }
+
+    @Override
+    public Properties getProperties() {
+        return _db.getProperties();
+    }
+
+    @Override
+    public void init() throws DBException {
+        _db.init();
+    }
+
+    @Override
+    public void cleanup() throws DBException {
+        _db.cleanup();
+    }
+
+    @Override
+    public void readAsync(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result, Callback callback) {
+        callback.completed(_db.read(table, key, fields, result));
+    }
+
+    @Override
+    public void scanAsync(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result, Callback callback) {
+        callback.completed(_db.scan(table, startkey, recordcount, fields, result));
+    }
+
+    @Override
+    public void updateAsync(String table, String key, HashMap<String, ByteIterator> values, Callback callback) {
+        callback.completed(_db.update(table, key, values));
+    }
+
+    @Override
+    public void insertAsync(String table, String key, HashMap<String, ByteIterator> values, Callback callback) {
+        callback.completed(_db.insert(table, key, values));
+    }
+
+    @Override
+    public void deleteAsync(String table, String key, Callback callback) {
+        callback.completed(_db.delete(table, key));
+    }
+
+    // no need to go through a callback when blocking anyway
+
+    @Override
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+        return _db.read(table, key, fields, result);
+    }
+
+    @Override
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+        return _db.scan(table, startkey, recordcount, fields, result);
+    }
+
+    @Override
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+        return _db.update(table, key, values);
+    }
+
+    @Override
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+        return _db.insert(table, key, values);
+    }
+
+    @Override
+    public int delete(String table, String key) {
+        return _db.delete(table, key);
+    }
+}
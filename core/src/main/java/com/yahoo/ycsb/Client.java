@@ -17,12 +17,15 @@ package com.yahoo.ycsb;
 
 import br.ufc.lsbd.benchxtend.configuration.*;
 import br.ufc.lsbd.benchxtend.manager.ClientManager;
+import br.ufc.lsbd.benchxtend.manager.ThroughputTask;
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.io.xml.DomDriver;
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.MetricsServer;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
 import java.io.*;
+import java.lang.reflect.InvocationTargetException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
@@ -58,6 +61,8 @@ public class Client {
         System.out.println("  -sla xmlfile:  load the file with expected query times defined in the SLA");
         System.out.println("  -target n: attempt to do n operations per second (default: unlimited) - can also\n"
                 + "              be specified as the \"target\" property using -p");
+        System.out.println("  -p arrivals=constant|poisson: open loop, operations arrive at \"arrivalrate\" per second,\n"
+                + "              or at the rates of the timeline if given, and are executed by the threads");
         System.out.println("  -load:  run the loading phase of the workload");
         System.out.println("  -t:  run the transactions phase of the workload (default)");
         System.out.println("  -db dbname: specify the name of the DB to use (default: com.yahoo.ycsb.BasicDB) - \n"
@@ -67,7 +72,8 @@ public class Client {
         System.out.println("  -p name=value:  specify a property to be passed to the DB and workloads;");
         System.out.println("                  multiple properties can be specified, and override any");
         System.out.println("                  values in the propertyfile");
-        System.out.println("  -s:  show status during run (default: no status)");
+        System.out.println("  -s:  show status during run (default: no status), every \"status.interval\"");
+        System.out.println("       seconds (default: 10), with the latency percentiles of each interval");
         System.out.println("  -l label:  use label for status (e.g. to label one experiment out of a whole batch)");
         System.out.println("");
         System.out.println("Required properties:");
@@ -115,10 +121,18 @@ public class Client {
             // if no exporter is provided the default text one will be used
             String exporterStr = props.getProperty("exporter", "com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter");
             try {
-                exporter = (MeasurementsExporter) Class.forName(exporterStr).getConstructor(OutputStream.class).newInstance(out);
+                Class<?> exporterclass = Class.forName(exporterStr);
+                try {
+                    // exporters that can be configured take the properties too
+                    exporter = (MeasurementsExporter) exporterclass.getConstructor(OutputStream.class, Properties.class).newInstance(out, props);
+                } catch (NoSuchMethodException e) {
+                    exporter = (MeasurementsExporter) exporterclass.getConstructor(OutputStream.class).newInstance(out);
+                }
             } catch (Exception e) {
-                System.err.println("Could not find exporter " + exporterStr
-                        + ", will use default text reporter.");
+                // an exporter that failed to be created tells why
+                Throwable cause = (e instanceof InvocationTargetException && e.getCause() != null) ? e.getCause() : e;
+                System.err.println("Could not create exporter " + exporterStr + " (" + cause
+                        + "), will use default text reporter.");
                 e.printStackTrace();
                 exporter = new TextMeasurementsExporter(out);
             }
@@ -235,6 +249,7 @@ public class Client {
                 argindex++;
             } else if (args[argindex].compareTo("-s") == 0) {
                 status = true;
+                props.setProperty(Measurements.STATUS, "true");
                 argindex++;
             } else if (args[argindex].compareTo("-db") == 0) {
                 argindex++;
@@ -374,6 +389,21 @@ public class Client {
 
         warningthread.start();
 
+        // in an open-loop run, response times are measured from the arrivals
+        boolean openloop = dotransactions && props.getProperty(ArrivalScheduler.ARRIVALS) != null;
+        if (openloop && props.getProperty(Measurements.MEASUREMENT_INTERVAL) == null) {
+            props.setProperty(Measurements.MEASUREMENT_INTERVAL, "both");
+        }
+
+        //set up the random numbers, before anything draws from them
+        try {
+            Utils.setRandom(props);
+        } catch (WorkloadException e) {
+            e.printStackTrace();
+            e.printStackTrace(System.out);
+            System.exit(0);
+        }
+
         //set up measurements
         Measurements.setProperties(props);
         Measurements.setSla(sla);
@@ -398,6 +428,7 @@ public class Client {
 
         try {
             workload.init(props);
+            workload.thinktime = Workload.createThinkTimeGenerator(props);
         } catch (WorkloadException e) {
             e.printStackTrace();
             e.printStackTrace(System.out);
@@ -423,7 +454,16 @@ public class Client {
 
         // 1st case: Follows BenchXtend approach varying the number of clients
         // load phase is let as an activity of basic flow
-        if (dotransactions && distribution != null) {
+        // a throughput timeline varies the load of a fixed number of clients,
+        // which then follow the basic flow
+        boolean throughputtimeline = dotransactions && distribution != null && distribution.throughput != null
+                && !distribution.throughput.isEmpty() && !openloop;
+        if (throughputtimeline) {
+            props.remove("distribution");
+            opcount = 0;
+        }
+
+        if (dotransactions && distribution != null && !openloop && !throughputtimeline) {
             // instantiates manager to create (and remove) ClientThreads
             ClientManager manager = new ClientManager(distribution, sla, workload);
             manager.init();
@@ -446,6 +486,36 @@ public class Client {
                 //t.start();
             }
 
+            // the threads share one schedule for the target throughput
+            RateLimiter limiter = null;
+            ThroughputTask throughputtask = null;
+            if (throughputtimeline) {
+                limiter = new RateLimiter(0);
+                throughputtask = new ThroughputTask(distribution, limiter, threads, workload);
+                limiter.setRate(throughputtask.getInitialTarget());
+            } else if (target > 0) {
+                limiter = new RateLimiter(target);
+            }
+            if (limiter != null) {
+                for (Thread t : threads) {
+                    ((ClientThread) t).setRateLimiter(limiter);
+                }
+            }
+
+            // in an open-loop run the threads execute the arrivals
+            ArrivalScheduler arrivals = null;
+            if (openloop) {
+                try {
+                    arrivals = new ArrivalScheduler(props, distribution, threadcount, opcount, workload);
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                    System.exit(0);
+                }
+                for (Thread t : threads) {
+                    ((ClientThread) t).setArrivals(arrivals);
+                }
+            }
+
             StatusThread statusthread = null;
 
             if (status) {
@@ -453,16 +523,27 @@ public class Client {
                 if (props.getProperty("measurementtype", "").compareTo("timeseries") == 0) {
                     standardstatus = true;
                 }
-                statusthread = new StatusThread(threads, label, standardstatus);
+                long statusinterval = Integer.parseInt(props.getProperty(StatusThread.STATUS_INTERVAL, StatusThread.STATUS_INTERVAL_DEFAULT)) * 1000L;
+                statusthread = new StatusThread(threads, label, standardstatus, statusinterval);
                 statusthread.start();
             }
 
+            MetricsServer metrics = MetricsServer.start(props, threads, !status);
+
             long st = System.currentTimeMillis();
 
             for (Thread t : threads) {
                 t.start();
             }
 
+            if (arrivals != null) {
+                arrivals.start();
+            }
+
+            if (throughputtask != null) {
+                throughputtask.start();
+            }
+
             Thread terminator = null;
 
             if (maxExecutionTime > 0) {
@@ -483,6 +564,10 @@ public class Client {
 
             long en = System.currentTimeMillis();
 
+            if (throughputtask != null) {
+                throughputtask.persist();
+            }
+
             if (terminator != null && !terminator.isInterrupted()) {
                 terminator.interrupt();
             }
@@ -491,6 +576,10 @@ public class Client {
                 statusthread.interrupt();
             }
 
+            if (metrics != null) {
+                metrics.stop();
+            }
+
             try {
                 workload.cleanup();
             } catch (WorkloadException e) {
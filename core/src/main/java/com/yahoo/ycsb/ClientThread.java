@@ -4,11 +4,21 @@
  */
 package com.yahoo.ycsb;
 
+import br.ufc.lsbd.benchxtend.manager.ClientPool;
+import com.yahoo.ycsb.measurements.ClientOverhead;
+import com.yahoo.ycsb.measurements.Measurements;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A thread for executing transactions or data inserts to the database.
  *
+ * It may also be run as a task by an executor, without being started (see
+ * ClientManager); use isRunning() and awaitCompletion() rather than isAlive()
+ * and join(), which only apply to a started thread.
+ *
  * @author cooperb
  *
  */
@@ -24,7 +34,23 @@ public class ClientThread extends Thread {
     int _threadcount;
     Object _workloadstate;
     Properties _props;
-    private boolean _stopRequested = false;
+    private volatile boolean _stopRequested = false;
+    // the thread running the client, woken up when the client is stopped
+    private volatile Thread _runner;
+    private volatile boolean _running = false;
+    ArrivalScheduler _arrivals;
+    RateLimiter _limiter;
+    boolean _dbinitialized = false;
+    // the pool the client waits in between activations, if any
+    ClientPool _pool;
+    private final Semaphore _activation = new Semaphore(0);
+    private volatile boolean _retired = false;
+    // the workload has no more operations for this client
+    private volatile boolean _finished = false;
+    // the DB and the workload state are set up, once _ready is counted down
+    private volatile boolean _initialized = false;
+    private final CountDownLatch _ready = new CountDownLatch(1);
+    private final CountDownLatch _done = new CountDownLatch(1);
 
     /**
      * Constructor.
@@ -45,32 +71,153 @@ public class ClientThread extends Thread {
         _opcount = opcount;
         _opsdone = 0;
         _target = targetperthreadperms;
+        if (targetperthreadperms > 0) {
+            _limiter = new RateLimiter(targetperthreadperms * 1000);
+        }
         _threadid = threadid;
         _threadcount = threadcount;
         _props = props;
         //System.out.println("Interval = "+interval);
     }
 
+    /**
+     * Execute the arrivals of an open-loop run rather than following the
+     * target throughput.
+     */
+    public void setArrivals(ArrivalScheduler arrivals) {
+        _arrivals = arrivals;
+    }
+
+    /**
+     * Throttle the operations with the given limiter, which may be shared with
+     * other threads, rather than with one of this thread's own.
+     */
+    public void setRateLimiter(RateLimiter limiter) {
+        _limiter = limiter;
+    }
+
+    /**
+     * The DB was initialized beforehand, the thread starts executing
+     * operations straight away.
+     */
+    public void setDBInitialized() {
+        _dbinitialized = true;
+    }
+
+    /**
+     * Make this a client of the timeline that, rather than finishing once
+     * removed, goes back to the pool and waits to be activated again, until
+     * it is retired. It waits to be activated from the start.
+     */
+    public void setPool(ClientPool pool) {
+        _pool = pool;
+    }
+
+    /**
+     * Start executing operations, the client being in its pool
+     */
+    public void activate() {
+        _stopRequested = false;
+        _activation.release();
+    }
+
+    /**
+     * Close the DB and finish, the client being in its pool
+     */
+    public void retire() {
+        _retired = true;
+        _activation.release();
+    }
+
     public int getOpsDone() {
         return _opsdone;
     }
     
+    /**
+     * Ask the client to stop once its current operation is done. A client
+     * waiting between two operations stops right away.
+     */
     public void setStopRequested(boolean stopRequested){
         this._stopRequested = stopRequested;
+        if (stopRequested) {
+            Thread runner = _runner;
+            if (runner != null) {
+                LockSupport.unpark(runner);
+            }
+        }
     }
     
     public boolean isStopRequested(){
         return this._stopRequested;
     }
 
+    /**
+     * Return true from the moment this client starts executing operations
+     * until it is done, whether it runs as a thread or as a task.
+     */
+    public boolean isRunning() {
+        return _running;
+    }
+
+    /**
+     * Return true once the workload has no more operations for this client of
+     * the timeline, e.g. its trace replayed is over. It then leaves the
+     * timeline for good.
+     */
+    public boolean isFinished() {
+        return _finished;
+    }
+
+    /**
+     * Wait until the DB and the workload state of this client are set up. It
+     * must have been started or submitted.
+     *
+     * @return false if they could not be, the client being done
+     */
+    public boolean awaitInitialized() throws InterruptedException {
+        _ready.await();
+        return _initialized;
+    }
+
+    /**
+     * Wait until this client is done. It must have been started or submitted.
+     */
+    public void awaitCompletion() throws InterruptedException {
+        _done.await();
+    }
+
     @Override
     public void run() {
+        _runner = Thread.currentThread();
+        _running = true;
+        ClientOverhead overhead = Measurements.getMeasurements().getClientOverhead();
+        if (overhead != null) {
+            // the CPU time and allocations of the whole thread, workload included
+            overhead.threadStarted();
+        }
         try {
-            _db.init();
-        } catch (DBException e) {
-            e.printStackTrace();
-            e.printStackTrace(System.out);
-            return;
+            runOperations();
+        } finally {
+            if (overhead != null) {
+                overhead.threadFinished();
+            }
+            _running = false;
+            _runner = null;
+            _ready.countDown();
+            _done.countDown();
+        }
+    }
+
+    private void runOperations() {
+        if (!_dbinitialized) {
+            try {
+                _db.init();
+            } catch (DBException e) {
+                e.printStackTrace();
+                e.printStackTrace(System.out);
+                initializationFailed();
+                return;
+            }
         }
 
         try {
@@ -78,8 +225,11 @@ public class ClientThread extends Thread {
         } catch (WorkloadException e) {
             e.printStackTrace();
             e.printStackTrace(System.out);
+            initializationFailed();
             return;
         }
+        _initialized = true;
+        _ready.countDown();
 
         //spread the thread operations out so they don't all hit the DB at the same time
         try {
@@ -95,95 +245,69 @@ public class ClientThread extends Thread {
 
         // checks if a timeline was provided. If yes, follows BenchXtend approach.
         // otherwise, follows the basic flow of YCSB
-        if (_workload.dotransactions && _workload.properties.containsKey("distribution") && _workload.properties.getProperty("distribution").equals("true")) {
-            // unlike YCSB, Benchxtend runs queries while it is not said to stop.
-            // this is make in order to keep the number of clients according to 
-            // the distribution defined in the timeline        
-
-            while (!this.isStopRequested()) {
-                if (_dotransactions) {
-                    _workload.doTransaction(_db, _workloadstate);
-                } else {
-                    _workload.doInsert(_db, _workloadstate);
-                }
+        if (_pool != null) {
+            runPooled();
+        } else if (_arrivals == null && _workload.dotransactions && _workload.properties.containsKey("distribution") && _workload.properties.getProperty("distribution").equals("true")) {
+            runTimelineOperations();
+        } else {
+            Measurements measurements = Measurements.getMeasurements();
+            try {
+                if (_arrivals != null) {
+                    int queue = measurements.getOperation(ArrivalScheduler.QUEUE);
 
-                if (Workload.SLEEP_TIME_BETWEEN_QUERIES > 0) {
-                    try {
-                        // waits for 1s before doing a new transaction
-                        sleep(Workload.SLEEP_TIME_BETWEEN_QUERIES);
-                    } catch (InterruptedException ex) {
+                    while (!_workload.isStopRequested()) {
+                        long arrival;
                         try {
-                            _db.cleanup();
-                        } catch (DBException e) {
-                            e.printStackTrace(System.out);
+                            arrival = _arrivals.take();
+                        } catch (InterruptedException e) {
+                            break;
                         }
-                        return;
-                    }
-                } else {
-                    if (Thread.interrupted()) {
-                        try {
-                            _db.cleanup();
-                        } catch (DBException e) {
-                            e.printStackTrace(System.out);
+                        if (arrival == ArrivalScheduler.STOP) {
+                            break;
                         }
-                        return;
-                    }
-                }
-            }
-        } else {
-            try {
-                if (_dotransactions) {
-                    long st = System.currentTimeMillis();
 
-                    while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested()) {
+                        // the time the operation waited for a free worker,
+                        // which its response time includes
+                        measurements.measure(queue, arrival, (int) ((System.nanoTime() - arrival) / 1000));
+                        measurements.setIntendedStartTimeNs(arrival);
 
                         if (!_workload.doTransaction(_db, _workloadstate)) {
                             break;
                         }
 
                         _opsdone++;
+                    }
+                } else if (_dotransactions) {
+                    while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested()) {
+
+                        if (_limiter != null) {
+                            // throttle the operations. the time the limiter
+                            // scheduled this operation at is the one its
+                            // response time is measured from
+                            measurements.setIntendedStartTimeNs(_limiter.acquire());
+                        }
 
-                        // throttle the operations
-                        if (_target > 0) {
-                            //this is more accurate than other throttling approaches we have tried,
-                            //like sleeping for (1/target throughput)-operation latency,
-                            //because it smooths timing inaccuracies (from sleep() taking an int, 
-                            //current time in millis) over many operations
-                            while (System.currentTimeMillis() - st < ((double) _opsdone) / _target) {
-                                try {
-                                    sleep(1);
-                                } catch (InterruptedException e) {
-                                    // do nothing.
-                                }
-
-                            }
+                        if (!_workload.doTransaction(_db, _workloadstate)) {
+                            break;
                         }
+
+                        _opsdone++;
                     }
                 } else {
-                    long st = System.currentTimeMillis();
-
                     while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested()) {
 
+                        if (_limiter != null) {
+                            // throttle the operations. the time the limiter
+                            // scheduled this operation at is the one its
+                            // response time is measured from
+                            measurements.setIntendedStartTimeNs(_limiter.acquire());
+                        }
+
                         if (!_workload.doInsert(_db, _workloadstate)) {
                             break;
                         }
 
                         _opsdone++;
-
-                        //throttle the operations
-                        if (_target > 0) {
-                            //this is more accurate than other throttling approaches we have tried,
-                            //like sleeping for (1/target throughput)-operation latency,
-                            //because it smooths timing inaccuracies (from sleep() taking an int, 
-                            //current time in millis) over many operations
-                            while (System.currentTimeMillis() - st < ((double) _opsdone) / _target) {
-                                try {
-                                    sleep(1);
-                                } catch (InterruptedException e) {
-                                    // do nothing.
-                                }
-                            }
-                        }
                     }
                 }
             } catch (Exception e) {
@@ -201,4 +325,125 @@ public class ClientThread extends Thread {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A client of the timeline that could not be set up finishes. If it was
+     * already activated, it leaves the timeline; if not, its pool does not
+     * offer it.
+     */
+    private void initializationFailed() {
+        if (_pool != null) {
+            _finished = true;
+            if (_activation.tryAcquire()) {
+                _pool.finished(this);
+            }
+        }
+    }
+
+    /**
+     * Run the operations each time the client is activated, waiting in its
+     * pool in between, until it is retired
+     */
+    private void runPooled() {
+        _running = false;
+        while (true) {
+            try {
+                _activation.acquire();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (_retired) {
+                break;
+            }
+
+            _running = true;
+            boolean interrupted = !runTimelineOperations();
+            _running = false;
+            if (interrupted) {
+                return;
+            }
+            if (_finished) {
+                // the workload is over for this client, which leaves the
+                // timeline rather than waiting to be activated again
+                _pool.finished(this);
+                break;
+            }
+            _pool.release(this);
+        }
+
+        try {
+            _db.cleanup();
+        } catch (DBException e) {
+            e.printStackTrace(System.out);
+        }
+    }
+
+    /**
+     * Run the operations until the client is removed from the timeline, or
+     * until the workload has no more of them (see isFinished()).
+     *
+     * @return false if the thread was interrupted, the DB being closed then
+     */
+    private boolean runTimelineOperations() {
+        // unlike YCSB, Benchxtend runs queries while it is not said to stop.
+        // this is make in order to keep the number of clients according to 
+        // the distribution defined in the timeline        
+
+        while (!this.isStopRequested()) {
+            boolean more;
+            if (_dotransactions) {
+                more = _workload.doTransaction(_db, _workloadstate);
+            } else {
+                more = _workload.doInsert(_db, _workloadstate);
+            }
+            if (!more) {
+                _finished = true;
+                break;
+            }
+
+            _opsdone++;
+
+            boolean interrupted;
+            long thinktime = _workload.thinktime.nextInt() * 1000L;
+            if (thinktime > 0) {
+                // waits for the think time before doing a new transaction
+                interrupted = !think(thinktime);
+            } else {
+                interrupted = Thread.interrupted();
+            }
+            if (interrupted) {
+                try {
+                    _db.cleanup();
+                } catch (DBException e) {
+                    e.printStackTrace(System.out);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wait between two operations, returning as soon as the client is asked
+     * to stop.
+     *
+     * @return false if the thread was interrupted
+     */
+    private boolean think(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long spinning = RateLimiter.spinTime();
+        long remaining;
+        while (!_stopRequested && (remaining = deadline - System.nanoTime()) > spinning) {
+            LockSupport.parkNanos(this, remaining - spinning);
+            if (Thread.interrupted()) {
+                return false;
+            }
+        }
+        // parkNanos() wakes up late, the rest of the wait is spun as the
+        // rate limiter does
+        while (!_stopRequested && deadline - System.nanoTime() > 0) {
+            Thread.yield();
+        }
+        return !Thread.interrupted();
+    }
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A fixed number of DB instances shared by any number of clients, so that
+ * simulating many more clients than the database can take connections does
+ * not open one connection per client.
+ *
+ * Each client gets its own DB from newClientDB(). Every operation on it
+ * borrows one of the shared instances, waiting if they are all busy, and gives
+ * it back when done; a shared instance is only used by one thread at a time,
+ * as the bindings expect. The time an operation waited for a shared instance
+ * is recorded under the CONNECTION operation, and its response time is
+ * measured from the moment it started waiting (see measurement.interval in
+ * Measurements), as the queueing of arrivals is, unless the operation was
+ * scheduled earlier.
+ */
+public class DBPool {
+
+    /**
+     * Number of DB instances shared by the clients of a timeline, when they
+     * run as tasks (clientmodel=executor). 0 gives each client its own.
+     */
+    public static final String CONNECTIONS = "db.connections";
+    public static final String CONNECTIONS_DEFAULT = "0";
+    /**
+     * Name of the operation the waits for a shared instance are recorded
+     * under.
+     */
+    public static final String CONNECTION = "CONNECTION";
+    BlockingQueue<DB> _idle;
+    Vector<DB> _all;
+    Measurements _measurements;
+    int _connection;
+
+    /**
+     * Create and initialize the shared instances.
+     */
+    public DBPool(String dbname, Properties props, int size) throws UnknownDBException, DBException {
+        _idle = new ArrayBlockingQueue<DB>(size);
+        _all = new Vector<DB>();
+        _measurements = Measurements.getMeasurements();
+        _connection = _measurements.getOperation(CONNECTION);
+        for (int i = 0; i < size; i++) {
+            DB db = DBFactory.newDB(dbname, props);
+            if (db == null) {
+                throw new UnknownDBException("Could not create " + dbname);
+            }
+            db.init();
+            _all.add(db);
+            _idle.add(db);
+        }
+    }
+
+    /**
+     * Return a DB for one more client. Its init() and cleanup() do nothing;
+     * the shared instances are cleaned up by close().
+     */
+    public DB newClientDB() {
+        return new PooledDB();
+    }
+
+    /**
+     * Clean up the shared instances, once the clients are done.
+     */
+    public void close() throws DBException {
+        for (DB db : _all) {
+            db.cleanup();
+        }
+    }
+
+    /**
+     * Borrow a shared instance, waiting for one to be free.
+     *
+     * @param ist the intended start time of the operation, 0 if it was not
+     * scheduled, in which case it is set to when the wait started
+     * @return the instance, or null if interrupted
+     */
+    DB acquire(long ist) {
+        long st = System.nanoTime();
+        DB db;
+        try {
+            db = _idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        // the time the operation waited for a free instance, which its
+        // response time includes
+        _measurements.measure(_connection, st, (int) ((System.nanoTime() - st) / 1000));
+        if (ist == 0) {
+            _measurements.setIntendedStartTimeNs(st);
+        }
+        return db;
+    }
+
+    /**
+     * Give back a shared instance, and the intended start time the thread had
+     * before acquire(), so that the next operations do not start waiting at
+     * the same time as this one.
+     */
+    void release(DB db, long ist) {
+        _idle.add(db);
+        _measurements.setIntendedStartTimeNs(ist);
+    }
+
+    /**
+     * The DB of one client, executing each operation on a shared instance.
+     */
+    class PooledDB extends DB {
+
+        @Override
+        public void setProperties(Properties p) {
+        }
+
+        @Override
+        public Properties getProperties() {
+            return _all.get(0).getProperties();
+        }
+
+        @Override
+        public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+            long ist = _measurements.getIntendedStartTimeNs();
+            DB db = acquire(ist);
+            if (db == null) {
+                return AsyncDB.INTERRUPTED;
+            }
+            try {
+                return db.read(table, key, fields, result);
+            } finally {
+                release(db, ist);
+            }
+        }
+
+        @Override
+        public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+            long ist = _measurements.getIntendedStartTimeNs();
+            DB db = acquire(ist);
+            if (db == null) {
+                return AsyncDB.INTERRUPTED;
+            }
+            try {
+                return db.scan(table, startkey, recordcount, fields, result);
+            } finally {
+                release(db, ist);
+            }
+        }
+
+        @Override
+        public int update(String table, String key, HashMap<String, ByteIterator> values) {
+            long ist = _measurements.getIntendedStartTimeNs();
+            DB db = acquire(ist);
+            if (db == null) {
+                return AsyncDB.INTERRUPTED;
+            }
+            try {
+                return db.update(table, key, values);
+            } finally {
+                release(db, ist);
+            }
+        }
+
+        @Override
+        public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+            long ist = _measurements.getIntendedStartTimeNs();
+            DB db = acquire(ist);
+            if (db == null) {
+                return AsyncDB.INTERRUPTED;
+            }
+            try {
+                return db.insert(table, key, values);
+            } finally {
+                release(db, ist);
+            }
+        }
+
+        @Override
+        public int delete(String table, String key) {
+            long ist = _measurements.getIntendedStartTimeNs();
+            DB db = acquire(ist);
+            if (db == null) {
+                return AsyncDB.INTERRUPTED;
+            }
+            try {
+                return db.delete(table, key);
+            } finally {
+                release(db, ist);
+            }
+        }
+    }
+}
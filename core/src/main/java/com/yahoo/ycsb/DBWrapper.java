@@ -15,23 +15,70 @@
  */
 package com.yahoo.ycsb;
 
+import com.yahoo.ycsb.measurements.ClientOverhead;
 import com.yahoo.ycsb.measurements.Measurements;
 import java.util.HashMap;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.Semaphore;
 
 /**
  * Wrapper around a "real" DB that measures latencies and counts return codes.
+ *
+ * When the "inflight" property is more than 1, the operations are submitted
+ * to the DB as an AsyncDB (through an AsyncDBAdapter if it is a blocking one)
+ * and return 0 as soon as they are submitted, as long as fewer than that many
+ * operations of the client thread are in flight; the next one waits for one of
+ * them to complete. Their latency is measured from submission to completion,
+ * and cleanup() waits for all of them. Workloads must then not rely on the
+ * results of an operation, nor measure several operations as a whole;
+ * CoreWorkload does neither, and does not measure its READ-MODIFY-WRITE
+ * transactions then.
  */
 public class DBWrapper extends DB {
 
+    /**
+     * Number of operations each client thread keeps in flight.
+     */
+    public static final String INFLIGHT = "inflight";
+    public static final String INFLIGHT_DEFAULT = "1";
     DB _db;
     Measurements _measurements;
+    ClientOverhead.Sampler _sampler;
+    AsyncDB _async;
+    Semaphore _inflight;
+    int _maxinflight;
+
+    /**
+     * Measures an operation in flight when it completes.
+     */
+    class Completion implements AsyncDB.Callback {
+
+        int _op;
+        long _intendedStartTime;
+        long _startTime;
+
+        Completion(int op, long intendedStartTime, long startTime) {
+            _op = op;
+            _intendedStartTime = intendedStartTime;
+            _startTime = startTime;
+        }
+
+        @Override
+        public void completed(int result) {
+            long en = System.nanoTime();
+            measure(_op, result, _intendedStartTime, _startTime, en);
+            _inflight.release();
+        }
+    }
 
     public DBWrapper(DB db) {
         _db = db;
         _measurements = Measurements.getMeasurements();
+        if (_measurements.getClientOverhead() != null) {
+            _sampler = _measurements.getClientOverhead().newSampler();
+        }
     }
 
     /**
@@ -57,6 +104,20 @@ public class DBWrapper extends DB {
     @Override
     public void init() throws DBException {
         _db.init();
+        int inflight = Integer.parseInt(getProperties().getProperty(INFLIGHT, INFLIGHT_DEFAULT));
+        if (inflight > 1) {
+            if (_db instanceof AsyncDB) {
+                _async = (AsyncDB) _db;
+            } else {
+                _async = new AsyncDBAdapter(_db);
+            }
+            // the operations complete on other threads, which do not account
+            // for the CPU time of this one, and no sample is begun when they
+            // are submitted
+            _sampler = null;
+            _inflight = new Semaphore(inflight);
+            _maxinflight = inflight;
+        }
     }
 
     /**
@@ -65,9 +126,49 @@ public class DBWrapper extends DB {
      */
     @Override
     public void cleanup() throws DBException {
+        if (_async != null) {
+            try {
+                _inflight.acquire(_maxinflight);
+                _inflight.release(_maxinflight);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
         _db.cleanup();
     }
 
+    /**
+     * Wait until fewer than "inflight" operations are in flight, and return the
+     * callback of the operation about to be submitted, or null if interrupted.
+     */
+    private Completion submit(int op, long intendedStartTime) {
+        try {
+            _inflight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return new Completion(op, intendedStartTime, System.nanoTime());
+    }
+
+    /**
+     * Record the service time of an operation, i.e. from the moment it was
+     * issued, and its response time, i.e. from the moment the throttle
+     * scheduled it. When the operation was not scheduled, both are the same.
+     * Its cost to the client is measured too, if enabled.
+     */
+    private void measure(int op, int result, long intendedStartTime, long startTime, long endTime) {
+        if (intendedStartTime == 0) {
+            intendedStartTime = startTime;
+        }
+        if (_sampler != null) {
+            _sampler.end(op, startTime, (int) ((endTime - startTime) / 1000));
+        }
+        _measurements.measure(op, startTime, (int) ((endTime - startTime) / 1000));
+        _measurements.measureIntended(op, intendedStartTime, (int) ((endTime - intendedStartTime) / 1000));
+        _measurements.reportReturnCode(op, result);
+    }
+
     /**
      * Read a record from the database. Each field/value pair from the result
      * will be stored in a HashMap.
@@ -80,11 +181,22 @@ public class DBWrapper extends DB {
      */
     @Override
     public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+        long ist = _measurements.getIntendedStartTimeNs();
+        if (_async != null) {
+            Completion c = submit(Measurements.READ, ist);
+            if (c == null) {
+                return AsyncDB.INTERRUPTED;
+            }
+            _async.readAsync(table, key, fields, result, c);
+            return 0;
+        }
+        if (_sampler != null) {
+            _sampler.begin();
+        }
         long st = System.nanoTime();
         int res = _db.read(table, key, fields, result);
         long en = System.nanoTime();
-        _measurements.measure("READ", st, (int) ((en - st) / 1000));
-        _measurements.reportReturnCode("READ", res);
+        measure(Measurements.READ, res, ist, st, en);
         return res;
     }
 
@@ -102,11 +214,22 @@ public class DBWrapper extends DB {
      */
     @Override
     public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+        long ist = _measurements.getIntendedStartTimeNs();
+        if (_async != null) {
+            Completion c = submit(Measurements.SCAN, ist);
+            if (c == null) {
+                return AsyncDB.INTERRUPTED;
+            }
+            _async.scanAsync(table, startkey, recordcount, fields, result, c);
+            return 0;
+        }
+        if (_sampler != null) {
+            _sampler.begin();
+        }
         long st = System.nanoTime();
         int res = _db.scan(table, startkey, recordcount, fields, result);
         long en = System.nanoTime();
-        _measurements.measure("SCAN", st, (int) ((en - st) / 1000));
-        _measurements.reportReturnCode("SCAN", res);
+        measure(Measurements.SCAN, res, ist, st, en);
         return res;
     }
 
@@ -122,11 +245,22 @@ public class DBWrapper extends DB {
      */
     @Override
     public int update(String table, String key, HashMap<String, ByteIterator> values) {
+        long ist = _measurements.getIntendedStartTimeNs();
+        if (_async != null) {
+            Completion c = submit(Measurements.UPDATE, ist);
+            if (c == null) {
+                return AsyncDB.INTERRUPTED;
+            }
+            _async.updateAsync(table, key, values, c);
+            return 0;
+        }
+        if (_sampler != null) {
+            _sampler.begin();
+        }
         long st = System.nanoTime();
         int res = _db.update(table, key, values);
         long en = System.nanoTime();
-        _measurements.measure("UPDATE", st, (int) ((en - st) / 1000));
-        _measurements.reportReturnCode("UPDATE", res);
+        measure(Measurements.UPDATE, res, ist, st, en);
         return res;
     }
 
@@ -142,11 +276,22 @@ public class DBWrapper extends DB {
      */
     @Override
     public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+        long ist = _measurements.getIntendedStartTimeNs();
+        if (_async != null) {
+            Completion c = submit(Measurements.INSERT, ist);
+            if (c == null) {
+                return AsyncDB.INTERRUPTED;
+            }
+            _async.insertAsync(table, key, values, c);
+            return 0;
+        }
+        if (_sampler != null) {
+            _sampler.begin();
+        }
         long st = System.nanoTime();
         int res = _db.insert(table, key, values);
         long en = System.nanoTime();
-        _measurements.measure("INSERT", st, (int) ((en - st) / 1000));
-        _measurements.reportReturnCode("INSERT", res);
+        measure(Measurements.INSERT, res, ist, st, en);
         return res;
     }
 
@@ -159,11 +304,22 @@ public class DBWrapper extends DB {
      */
     @Override
     public int delete(String table, String key) {
+        long ist = _measurements.getIntendedStartTimeNs();
+        if (_async != null) {
+            Completion c = submit(Measurements.DELETE, ist);
+            if (c == null) {
+                return AsyncDB.INTERRUPTED;
+            }
+            _async.deleteAsync(table, key, c);
+            return 0;
+        }
+        if (_sampler != null) {
+            _sampler.begin();
+        }
         long st = System.nanoTime();
         int res = _db.delete(table, key);
         long en = System.nanoTime();
-        _measurements.measure("DELETE", st, (int) ((en - st) / 1000));
-        _measurements.reportReturnCode("DELETE", res);
+        measure(Measurements.DELETE, res, ist, st, en);
         return res;
     }
 }
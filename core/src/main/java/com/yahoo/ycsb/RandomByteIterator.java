@@ -16,6 +16,8 @@
  */
 package com.yahoo.ycsb;
 
+import com.yahoo.ycsb.generator.RandomSource;
+
 /**
  *  A ByteIterator that generates a random sequence of bytes.
  */
@@ -24,6 +26,7 @@ public class RandomByteIterator extends ByteIterator {
   private long off;
   private int bufOff;
   private byte[] buf;
+  private final RandomSource random;
 
   @Override
   public boolean hasNext() {
@@ -31,7 +34,7 @@ public class RandomByteIterator extends ByteIterator {
   }
 
   private void fillBytesImpl(byte[] buffer, int base) {
-    int bytes = Utils.random().nextInt();
+    int bytes = random.nextInt();
     try {
       buffer[base+0] = (byte)(((bytes) & 31) + ' ');
       buffer[base+1] = (byte)(((bytes >> 5) & 31) + ' ');
@@ -51,8 +54,25 @@ public class RandomByteIterator extends ByteIterator {
   }
 
   public RandomByteIterator(long len) {
-    this.len = len;
+    this(len, Utils.threadRandom());
+  }
+
+  /**
+   * A sequence drawn from the given random numbers, which must not be used
+   * by another thread while the sequence is read.
+   */
+  public RandomByteIterator(long len, RandomSource random) {
     this.buf = new byte[6];
+    this.random = random;
+    reset(len);
+  }
+
+  /**
+   * Start over with a new sequence of the given length, reusing this iterator.
+   */
+  public void reset(long len) {
+    this.len = len;
+    this.off = 0;
     this.bufOff = buf.length;
     fillBytes();
     this.off = 0;
@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces operations to a target rate, shared by any number of threads.
+ *
+ * The operations are given slots on a schedule driven by System.nanoTime():
+ * the n-th one is due n / rate seconds after the first. acquire() takes the
+ * next slot and waits for it, parking the thread until shortly before it is
+ * due and spinning the rest of the way, since parkNanos() wakes up late by
+ * tens of microseconds, too much at high rates. The spin is calibrated once
+ * to the park overshoot of the machine.
+ *
+ * The schedule is not reset when the operations fall behind: late slots are
+ * taken without waiting until the operations catch up, so the rate is kept
+ * over the whole run and the slot of each operation is the time it was meant
+ * to start at, which its response time is measured from.
+ *
+ * The rate can be changed at any time; the slots after the change are spaced
+ * at the new rate. Each schedule hands out its own slots, and a change closes
+ * the current one before the next takes over, so that a slot is never paired
+ * with a schedule it was not taken from.
+ */
+public class RateLimiter {
+
+    // longest and shortest spin before a slot
+    static final long MAX_SPIN_NS = 1000000;
+    static final long MIN_SPIN_NS = 10000;
+    static volatile long spin = -1;
+    // the next slot of a schedule that was replaced; far enough from
+    // Long.MAX_VALUE that the threads still taking slots do not overflow it
+    static final long CLOSED = Long.MAX_VALUE / 2;
+
+    /**
+     * Slot of number basecount is due at basetime, and the following ones
+     * interval ns after each other. The slots are taken from next, until the
+     * schedule is closed.
+     */
+    static class Schedule {
+
+        final long basetime;
+        final long basecount;
+        final double interval;
+        final AtomicLong next;
+
+        Schedule(long basetime, long basecount, double interval) {
+            this.basetime = basetime;
+            this.basecount = basecount;
+            this.interval = interval;
+            this.next = new AtomicLong(basecount);
+        }
+
+        long due(long count) {
+            return basetime + (long) ((count - basecount) * interval);
+        }
+
+        /**
+         * @return the first slot not taken
+         */
+        long close() {
+            return next.getAndSet(CLOSED);
+        }
+    }
+    volatile double rate;
+    volatile Schedule schedule;
+
+    /**
+     * @param rate operations per second, or 0 for no limit
+     */
+    public RateLimiter(double rate) {
+        this.rate = rate;
+        spinTime();
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Change the rate, from the next slot on.
+     *
+     * @param rate operations per second, or 0 for no limit
+     */
+    public synchronized void setRate(double rate) {
+        this.rate = rate;
+        Schedule s = schedule;
+        if (s != null) {
+            long next = s.close();
+            schedule = new Schedule(s.due(next), next, interval(rate));
+        }
+    }
+
+    /**
+     * Take the next slot and wait until it is due, or until the thread is
+     * interrupted.
+     *
+     * @return the time (System.nanoTime()) the slot was due at
+     */
+    public long acquire() {
+        while (true) {
+            Schedule s = schedule;
+            if (s == null) {
+                s = begin();
+            }
+            long n = s.next.getAndIncrement();
+            if (n < CLOSED) {
+                long due = s.due(n);
+                awaitNanos(due);
+                return due;
+            }
+            // the rate is being changed, the next schedule is about to be in
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Start the schedule with the first slot taken, so that the time the
+     * threads take to get ready does not end in a burst.
+     */
+    private synchronized Schedule begin() {
+        if (schedule == null) {
+            schedule = new Schedule(System.nanoTime(), 0, interval(rate));
+        }
+        return schedule;
+    }
+
+    static double interval(double rate) {
+        return (rate > 0) ? 1e9 / rate : 0;
+    }
+
+    /**
+     * Wait until the given time (System.nanoTime()), or until the thread is
+     * interrupted.
+     */
+    public static void awaitNanos(long deadline) {
+        long remaining;
+        long spinning = spinTime();
+        while ((remaining = deadline - System.nanoTime()) > spinning) {
+            LockSupport.parkNanos(remaining - spinning);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+        while (deadline - System.nanoTime() > 0) {
+            // lets the other threads run if there are more than cores
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Return how long before a deadline to stop parking and spin instead:
+     * twice the average time parkNanos() oversleeps, measured the first time.
+     */
+    static long spinTime() {
+        long s = spin;
+        return (s >= 0) ? s : calibrate();
+    }
+
+    private static synchronized long calibrate() {
+        if (spin < 0) {
+            long overshoot = 0;
+            for (int i = 0; i < 20; i++) {
+                long st = System.nanoTime();
+                LockSupport.parkNanos(1000);
+                overshoot += System.nanoTime() - st - 1000;
+            }
+            spin = Math.max(MIN_SPIN_NS, Math.min(MAX_SPIN_NS, overshoot / 10));
+        }
+        return spin;
+    }
+}
@@ -21,14 +21,20 @@ class StatusThread extends Thread {
     String _label;
     boolean _standardstatus;
     /**
-     * The interval for reporting status.
+     * The interval for reporting status, in seconds.
      */
-    public static final long sleeptime = 10000;
+    public static final String STATUS_INTERVAL = "status.interval";
+    public static final String STATUS_INTERVAL_DEFAULT = "10";
+    long _sleeptime;
 
-    public StatusThread(Vector<Thread> threads, String label, boolean standardstatus) {
+    /**
+     * @param sleeptime the interval for reporting status, in ms
+     */
+    public StatusThread(Vector<Thread> threads, String label, boolean standardstatus, long sleeptime) {
         _threads = threads;
         _label = label;
         _standardstatus = standardstatus;
+        _sleeptime = sleeptime;
     }
 
     /**
@@ -39,6 +45,7 @@ class StatusThread extends Thread {
 
         long lasten = st;
         long lasttotalops = 0;
+        long deadline = st;
 
         boolean alldone;
 
@@ -83,8 +90,11 @@ class StatusThread extends Thread {
                 }
             }
 
+            // sleeps until the end of the interval, so the time spent
+            // printing does not make the intervals drift
+            deadline += _sleeptime;
             try {
-                sleep(sleeptime);
+                sleep(Math.max(1, deadline - System.currentTimeMillis()));
             } catch (InterruptedException e) {
                 //do nothing
             }
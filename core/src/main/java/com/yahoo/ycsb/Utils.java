@@ -17,24 +17,117 @@
 
 package com.yahoo.ycsb;
 
-import java.util.Random;
+import com.yahoo.ycsb.generator.RandomSource;
+import com.yahoo.ycsb.generator.SplitMix64Random;
+import java.util.Properties;
 
 /**
  * Utility functions.
  */
 public class Utils
 {
-  private static final Random rand = new Random();
-  private static final ThreadLocal<Random> rng = new ThreadLocal<Random>();
+  /**
+   * The random number generator: splitmix (default), xoroshiro, or the name
+   * of a RandomSource class.
+   */
+  public static final String RANDOM_PROPERTY = "random";
+  public static final String RANDOM_PROPERTY_DEFAULT = "splitmix";
 
-  public static Random random() {
-    Random ret = rng.get();
+  /**
+   * The seed all the random numbers are derived from. If not set, a seed is
+   * picked, and printed so that the run can be repeated.
+   */
+  public static final String SEED_PROPERTY = "seed";
+
+  private static String randomtype = RANDOM_PROPERTY_DEFAULT;
+  private static long seed = System.nanoTime();
+  private static RandomSource rand = new SplitMix64Random(seed);
+  private static final ThreadLocal<RandomSource> rng = new ThreadLocal<RandomSource>();
+
+  /**
+   * Set up the random number generator, and its seed, from the properties.
+   * Threads that already have random numbers keep their stream.
+   */
+  public static synchronized void setRandom(Properties props) throws WorkloadException {
+    randomtype = props.getProperty(RANDOM_PROPERTY, RANDOM_PROPERTY_DEFAULT);
+    String value = props.getProperty(SEED_PROPERTY);
+    if (value != null) {
+      seed = Long.parseLong(value);
+    } else {
+      seed = new SplitMix64Random(System.nanoTime()).nextLong();
+      System.err.println("Random seed: " + seed);
+    }
+    rand = RandomSource.create(randomtype, seed);
+    rng.remove();
+  }
+
+  public static synchronized long getSeed() {
+    return seed;
+  }
+
+  /**
+   * The random numbers of the calling thread, split from those of the
+   * seed the first time the thread asks for them.
+   */
+  public static RandomSource random() {
+    RandomSource ret = rng.get();
     if(ret == null) {
-      ret = new Random(rand.nextLong());
+      synchronized (Utils.class) {
+        ret = rand.split();
+      }
       rng.set(ret);
     }
     return ret;
   }
+
+  /**
+   * A new source of the random numbers of the given stream. The same seed
+   * and stream give the same numbers, whatever the order the streams are
+   * created in, e.g. by threads starting in any order.
+   */
+  public static synchronized RandomSource random(long stream) {
+    try {
+      return RandomSource.create(randomtype, SplitMix64Random.mix64(seed + stream * SplitMix64Random.GOLDEN_GAMMA));
+    } catch (WorkloadException e) {
+      // setRandom() already created one of this type
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * A source that draws from the random numbers of the calling thread, for
+   * generators shared by several threads.
+   */
+  public static RandomSource threadRandom() {
+    return THREAD_RANDOM;
+  }
+
+  private static final RandomSource THREAD_RANDOM = new RandomSource() {
+    @Override
+    protected void seed(long seed) {
+    }
+
+    @Override
+    public RandomSource split() {
+      return random().split();
+    }
+
+    @Override
+    public long nextLong() {
+      return random().nextLong();
+    }
+
+    @Override
+    public int nextInt(int bound) {
+      return random().nextInt(bound);
+    }
+
+    @Override
+    public double nextDouble() {
+      return random().nextDouble();
+    }
+  };
+
       /**
        * Generate a random ASCII string of a given length.
        */
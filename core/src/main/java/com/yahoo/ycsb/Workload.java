@@ -15,6 +15,13 @@
  */
 package com.yahoo.ycsb;
 
+import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
+import com.yahoo.ycsb.generator.ExponentialGenerator;
+import com.yahoo.ycsb.generator.FileIntegerGenerator;
+import com.yahoo.ycsb.generator.IntegerGenerator;
+import com.yahoo.ycsb.generator.ParetoGenerator;
+import com.yahoo.ycsb.generator.UniformIntegerGenerator;
+import java.io.IOException;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -37,7 +44,25 @@ public abstract class Workload {
 
     public static final String INSERT_START_PROPERTY = "insertstart";
     public static final String INSERT_START_PROPERTY_DEFAULT = "0";
-    public static long SLEEP_TIME_BETWEEN_QUERIES = 1000; // in milliseconds
+    /**
+     * Distribution of the time each client of a timeline waits between two
+     * operations (its think time): "constant", "exponential", "uniform",
+     * "pareto", or "file", which replays the times listed in thinktime.file,
+     * one per line. The times are in milliseconds and may have decimals.
+     */
+    public static final String THINK_TIME_PROPERTY = "thinktime";
+    public static final String THINK_TIME_PROPERTY_DEFAULT = "constant";
+    // mean think time
+    public static final String THINK_TIME_MEAN_PROPERTY = "thinktime.mean";
+    public static final String THINK_TIME_MEAN_PROPERTY_DEFAULT = "1000";
+    // bounds of a uniform think time, by default 0 and twice the mean
+    public static final String THINK_TIME_MIN_PROPERTY = "thinktime.min";
+    public static final String THINK_TIME_MAX_PROPERTY = "thinktime.max";
+    // shape of a pareto think time, the lower the heavier its tail
+    public static final String THINK_TIME_SHAPE_PROPERTY = "thinktime.shape";
+    public static final String THINK_TIME_SHAPE_PROPERTY_DEFAULT = "2";
+    public static final String THINK_TIME_FILE_PROPERTY = "thinktime.file";
+    public IntegerGenerator thinktime = new ConstantIntegerGenerator(1000000); // in microseconds
     public long startTime; // time the workload started being executed
     public Properties properties; // holds default properties of YCSB, not including Benchxtend properties
     public boolean dotransactions = true;
@@ -51,6 +76,42 @@ public abstract class Workload {
     public void init(Properties p) throws WorkloadException {
     }
 
+    /**
+     * Create the think time generator defined by the properties, whose values
+     * are in microseconds.
+     */
+    public static IntegerGenerator createThinkTimeGenerator(Properties p) throws WorkloadException {
+        String type = p.getProperty(THINK_TIME_PROPERTY, THINK_TIME_PROPERTY_DEFAULT);
+        double mean = Double.parseDouble(p.getProperty(THINK_TIME_MEAN_PROPERTY, THINK_TIME_MEAN_PROPERTY_DEFAULT)) * 1000;
+        if (type.equals("constant")) {
+            return new ConstantIntegerGenerator((int) mean);
+        } else if (type.equals("exponential")) {
+            return new ExponentialGenerator(mean);
+        } else if (type.equals("uniform")) {
+            double min = Double.parseDouble(p.getProperty(THINK_TIME_MIN_PROPERTY, "0")) * 1000;
+            double max = (p.getProperty(THINK_TIME_MAX_PROPERTY) != null) ? Double.parseDouble(p.getProperty(THINK_TIME_MAX_PROPERTY)) * 1000 : 2 * mean;
+            return new UniformIntegerGenerator((int) min, (int) max);
+        } else if (type.equals("pareto")) {
+            double shape = Double.parseDouble(p.getProperty(THINK_TIME_SHAPE_PROPERTY, THINK_TIME_SHAPE_PROPERTY_DEFAULT));
+            if (shape <= 1) {
+                throw new WorkloadException("The shape of a pareto think time must be greater than 1");
+            }
+            return ParetoGenerator.withMean(mean, shape);
+        } else if (type.equals("file")) {
+            String file = p.getProperty(THINK_TIME_FILE_PROPERTY);
+            if (file == null) {
+                throw new WorkloadException("No " + THINK_TIME_FILE_PROPERTY + " given");
+            }
+            try {
+                return new FileIntegerGenerator(file, 1000);
+            } catch (IOException e) {
+                throw new WorkloadException("Could not read the think times: " + e.getMessage());
+            }
+        } else {
+            throw new WorkloadException("Unknown think time distribution \"" + type + "\"");
+        }
+    }
+
     /**
      * Initialize any state for a particular client thread. Since the scenario
      * object will be shared among all threads, this is the place to create any
@@ -18,7 +18,6 @@
 package com.yahoo.ycsb.generator;
 
 import java.util.Vector;
-import java.util.Random;
 
 import com.yahoo.ycsb.Utils;
 import com.yahoo.ycsb.WorkloadException;
@@ -42,11 +41,25 @@ public class DiscreteGenerator extends Generator
 
 	Vector<Pair> _values;
 	String _lastvalue;
+	double _sum;
+	RandomSource _random;
 
 	public DiscreteGenerator()
 	{
 		_values=new Vector<Pair>();
 		_lastvalue=null;
+		_random=Utils.threadRandom();
+	}
+
+	/**
+	 * Create a generator of the same values and weights as another one, for another thread to use.
+	 */
+	public DiscreteGenerator(DiscreteGenerator other, RandomSource random)
+	{
+		_random=random;
+		_values=new Vector<Pair>(other._values);
+		_lastvalue=null;
+		_sum=other._sum;
 	}
 
 	/**
@@ -54,23 +67,32 @@ public class DiscreteGenerator extends Generator
 	 */
 	public String nextString()
 	{
-		double sum=0;
-
-		for (Pair p : _values)
-		{
-			sum+=p._weight;
-		}
+		return _values.get(nextIndex())._value;
+	}
 
-		double val=Utils.random().nextDouble();
+	/**
+	 * Generate the next value of the distribution, as its position in the order the values were added in.
+	 */
+	public int nextIndex()
+	{
+		double val=_random.nextDouble();
 
-		for (Pair p : _values)
+		int count=_values.size();
+		for (int i=0; i<count; i++)
 		{
-			if (val<p._weight/sum)
+			Pair p=_values.get(i);
+			if (val<p._weight/_sum)
 			{
-				return p._value;
+				return i;
 			}
 
-			val-=p._weight/sum;
+			val-=p._weight/_sum;
+		}
+
+		//rounding may leave val a little above the last weight
+		if (count>0)
+		{
+			return count-1;
 		}
 
 		//should never get here.
@@ -78,7 +100,7 @@ public class DiscreteGenerator extends Generator
 
 		System.exit(0);
 
-		return null;
+		return -1;
 	}
 
 	/**
@@ -109,6 +131,7 @@ public class DiscreteGenerator extends Generator
 	public void addValue(double weight, String value)
 	{
 		_values.add(new Pair(weight,value));
+		_sum+=weight;
 	}
 
 }
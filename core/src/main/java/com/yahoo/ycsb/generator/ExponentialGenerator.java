@@ -17,8 +17,6 @@
 
 package com.yahoo.ycsb.generator;
 
-import java.util.Random;
-
 import com.yahoo.ycsb.Utils;
 
 /**
@@ -45,6 +43,8 @@ public class ExponentialGenerator extends IntegerGenerator
 	 */
 	double _gamma;	
 
+	RandomSource _random=Utils.threadRandom();
+
 	/******************************* Constructors **************************************/
 
 	/**
@@ -60,6 +60,16 @@ public class ExponentialGenerator extends IntegerGenerator
 		_gamma = -Math.log(1.0-percentile/100.0) / range;  //1.0/mean;
 	}
 
+	/**
+	 * Create a generator of the same distribution as another one, for another thread to use.
+	 */
+	public ExponentialGenerator(ExponentialGenerator other, RandomSource random)
+	{
+		_gamma = other._gamma;
+		_random = random;
+		setLastInt(other.lastInt());
+	}
+
 	/****************************************************************************************/
 	
 	/** 
@@ -82,7 +92,7 @@ public class ExponentialGenerator extends IntegerGenerator
 	 */
 	public long nextLong()
 	{
-		return (long) (-Math.log(Utils.random().nextDouble()) / _gamma);
+		return (long) (-Math.log(_random.nextDouble()) / _gamma);
 	}
 
 	@Override
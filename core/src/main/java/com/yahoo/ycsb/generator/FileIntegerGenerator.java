@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.generator;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A generator replaying the numbers of a file, one per line, scaled by a
+ * factor. It starts over once they are all used. The values are shared by the
+ * threads using the generator, each taking the next one.
+ */
+public class FileIntegerGenerator extends IntegerGenerator
+{
+	int[] _values;
+	double _mean;
+	AtomicInteger _next=new AtomicInteger();
+
+	/**
+	 * @param filename the file to read the numbers from; blank lines and lines starting with # are skipped
+	 * @param scale the factor the numbers are multiplied by
+	 */
+	public FileIntegerGenerator(String filename, double scale) throws IOException
+	{
+		ArrayList<Integer> values=new ArrayList<Integer>();
+		BufferedReader reader=new BufferedReader(new FileReader(filename));
+		try
+		{
+			String line;
+			while ((line=reader.readLine())!=null)
+			{
+				line=line.trim();
+				if (line.length()>0 && !line.startsWith("#"))
+				{
+					values.add((int)(Double.parseDouble(line)*scale));
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		if (values.isEmpty())
+		{
+			throw new IOException("No values in "+filename);
+		}
+
+		_values=new int[values.size()];
+		long sum=0;
+		for (int i=0; i<_values.length; i++)
+		{
+			_values[i]=values.get(i);
+			sum+=_values[i];
+		}
+		_mean=(double)sum/_values.length;
+	}
+
+	@Override
+	public int nextInt()
+	{
+		int ret=_values[(_next.getAndIncrement()&Integer.MAX_VALUE)%_values.length];
+		setLastInt(ret);
+		return ret;
+	}
+
+	@Override
+	public double mean()
+	{
+		return _mean;
+	}
+}
@@ -16,8 +16,6 @@
  */
 package com.yahoo.ycsb.generator;
 
-import java.util.Random;
-
 import com.yahoo.ycsb.Utils;
 
 /**
@@ -39,6 +37,7 @@ public class HotspotIntegerGenerator extends IntegerGenerator {
   private final int coldInterval;
   private final double hotsetFraction;
   private final double hotOpnFraction;
+  private final RandomSource random;
   
   /**
    * Create a generator for Hotspot distributions.
@@ -72,12 +71,30 @@ public class HotspotIntegerGenerator extends IntegerGenerator {
     this.hotInterval = (int)(interval * hotsetFraction);
     this.coldInterval = interval - hotInterval;
     this.hotOpnFraction = hotOpnFraction;
+    this.random = Utils.threadRandom();
+  }
+
+  /**
+   * Create a generator of the same distribution as another one, for another
+   * thread to use.
+   *
+   * @param other the generator to copy.
+   * @param random the random numbers to draw the values from.
+   */
+  public HotspotIntegerGenerator(HotspotIntegerGenerator other, RandomSource random) {
+    this.lowerBound = other.lowerBound;
+    this.upperBound = other.upperBound;
+    this.hotsetFraction = other.hotsetFraction;
+    this.hotInterval = other.hotInterval;
+    this.coldInterval = other.coldInterval;
+    this.hotOpnFraction = other.hotOpnFraction;
+    this.random = random;
+    setLastInt(other.lastInt());
   }
   
   @Override
   public int nextInt() {
     int value = 0;
-    Random random = Utils.random();
     if (random.nextDouble() < hotOpnFraction) {
       // Choose a value from the hot set.
       value = lowerBound + random.nextInt(hotInterval);
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.generator;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * A generator of a Pareto distribution: no value is less than the scale, and
+ * the larger values are rare but much larger than the mean, the smaller the
+ * shape the heavier the tail.
+ */
+public class ParetoGenerator extends IntegerGenerator
+{
+	double _scale;
+	double _shape;
+
+	RandomSource _random=Utils.threadRandom();
+
+	/**
+	 * @param scale the smallest value
+	 * @param shape the shape of the distribution, greater than 1 for it to have a mean
+	 */
+	public ParetoGenerator(double scale, double shape)
+	{
+		_scale=scale;
+		_shape=shape;
+	}
+
+	/**
+	 * Create a generator of the given mean and shape.
+	 */
+	public static ParetoGenerator withMean(double mean, double shape)
+	{
+		return new ParetoGenerator(mean*(shape-1)/shape,shape);
+	}
+
+	/**
+	 * Create a generator of the same distribution as another one, for another thread to use.
+	 */
+	public ParetoGenerator(ParetoGenerator other, RandomSource random)
+	{
+		_scale=other._scale;
+		_shape=other._shape;
+		_random=random;
+		setLastInt(other.lastInt());
+	}
+
+	@Override
+	public int nextInt()
+	{
+		// inverse of the distribution function, 1-nextDouble() never being 0
+		int ret=(int)(_scale/Math.pow(1.0-_random.nextDouble(),1.0/_shape));
+		setLastInt(ret);
+		return ret;
+	}
+
+	@Override
+	public double mean()
+	{
+		return (_shape>1) ? _shape*_scale/(_shape-1) : Double.POSITIVE_INFINITY;
+	}
+}
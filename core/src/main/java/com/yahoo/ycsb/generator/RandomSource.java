@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+import com.yahoo.ycsb.WorkloadException;
+
+/**
+ * A source of random numbers for the generators. Each thread should have its own: the implementations are not thread safe,
+ * and do not need the atomic updates of java.util.Random. A source can be split into a new one, whose numbers are
+ * independent of those of the source, to give each thread a stream of its own.
+ *
+ * It extends java.util.Random so that it can be used wherever one is expected.
+ */
+public abstract class RandomSource extends Random
+{
+	private static final long serialVersionUID=1L;
+
+	static final double DOUBLE_UNIT=0x1.0p-53;
+	static final float FLOAT_UNIT=0x1.0p-24f;
+
+	/**
+	 * False while the constructor of Random runs, as it sets a seed before this object is initialized
+	 */
+	private boolean initialized;
+
+	protected RandomSource()
+	{
+		super(0L);
+		initialized=true;
+	}
+
+	/**
+	 * Create the source of the given name: splitmix, xoroshiro, or the name of a RandomSource class with a constructor
+	 * taking the seed.
+	 */
+	public static RandomSource create(String name, long seed) throws WorkloadException
+	{
+		if (name.compareTo("splitmix")==0)
+		{
+			return new SplitMix64Random(seed);
+		}
+		else if (name.compareTo("xoroshiro")==0)
+		{
+			return new Xoroshiro128PlusRandom(seed);
+		}
+		try
+		{
+			Class<?> sourceclass=RandomSource.class.getClassLoader().loadClass(name);
+			return (RandomSource)sourceclass.getConstructor(Long.TYPE).newInstance(seed);
+		}
+		catch (Exception e)
+		{
+			throw new WorkloadException("Unknown random number generator \""+name+"\": "+e);
+		}
+	}
+
+	/**
+	 * Start over the sequence from the given seed.
+	 */
+	protected abstract void seed(long seed);
+
+	/**
+	 * Return a new source whose numbers are independent of the numbers of this one. This one moves on.
+	 */
+	public abstract RandomSource split();
+
+	@Override
+	public abstract long nextLong();
+
+	@Override
+	public void setSeed(long seed)
+	{
+		if (initialized)
+		{
+			seed(seed);
+		}
+	}
+
+	@Override
+	protected int next(int bits)
+	{
+		return (int)(nextLong()>>>(64-bits));
+	}
+
+	@Override
+	public int nextInt()
+	{
+		return (int)(nextLong()>>>32);
+	}
+
+	/**
+	 * The same algorithm as java.util.Random, so the values are as evenly distributed.
+	 */
+	@Override
+	public int nextInt(int bound)
+	{
+		if (bound<=0)
+		{
+			throw new IllegalArgumentException("bound must be positive");
+		}
+		int r=next(31);
+		int m=bound-1;
+		if ((bound&m)==0)
+		{
+			return (int)((bound*(long)r)>>31);
+		}
+		for (int u=r; u-(r=u%bound)+m<0; u=next(31))
+			;
+		return r;
+	}
+
+	@Override
+	public double nextDouble()
+	{
+		return (nextLong()>>>11)*DOUBLE_UNIT;
+	}
+
+	@Override
+	public float nextFloat()
+	{
+		return (nextLong()>>>40)*FLOAT_UNIT;
+	}
+
+	@Override
+	public boolean nextBoolean()
+	{
+		return nextLong()<0;
+	}
+}
@@ -91,6 +91,20 @@ public class ScrambledZipfianGenerator extends IntegerGenerator
 		    gen=new ZipfianGenerator(0,ITEM_COUNT,_zipfianconstant);
 		}
 	}
+
+	/**
+	 * Create a generator of the same distribution as another one, for another thread to use, sharing its precomputed zeta.
+	 * @param other The generator to copy.
+	 * @param random The random numbers to draw the items from.
+	 */
+	public ScrambledZipfianGenerator(ScrambledZipfianGenerator other, RandomSource random)
+	{
+		_min=other._min;
+		_max=other._max;
+		_itemcount=other._itemcount;
+		gen=new ZipfianGenerator(other.gen,random);
+		setLastInt(other.lastInt());
+	}
 	
 	/**************************************************************************************************/
 	
@@ -32,6 +32,17 @@ public class SkewedLatestGenerator extends IntegerGenerator
 		nextInt();
 	}
 
+	/**
+	 * Create a generator of the same distribution as another one, for another thread to use. Both follow the same basis
+	 * generator, and the precomputed zeta is shared.
+	 */
+	public SkewedLatestGenerator(SkewedLatestGenerator other, RandomSource random)
+	{
+		_basis=other._basis;
+		_zipfian=new ZipfianGenerator(other._zipfian,random);
+		setLastInt(other.lastInt());
+	}
+
 	/**
 	 * Generate the next string in the distribution, skewed Zipfian favoring the items most recently returned by the basis generator.
 	 */
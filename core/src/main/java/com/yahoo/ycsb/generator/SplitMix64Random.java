@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.generator;
+
+/**
+ * The SplitMix64 generator, the one of java.util.SplittableRandom: a counter incremented by an odd gamma, whose value is
+ * scrambled into the next number. Splitting gives the new source a seed and a gamma of its own.
+ */
+public class SplitMix64Random extends RandomSource
+{
+	private static final long serialVersionUID=1L;
+
+	public static final long GOLDEN_GAMMA=0x9e3779b97f4a7c15L;
+
+	long _seed;
+	long _gamma;
+
+	public SplitMix64Random(long seed)
+	{
+		this(seed,GOLDEN_GAMMA);
+	}
+
+	SplitMix64Random(long seed, long gamma)
+	{
+		_seed=seed;
+		_gamma=gamma;
+	}
+
+	@Override
+	protected void seed(long seed)
+	{
+		_seed=seed;
+		_gamma=GOLDEN_GAMMA;
+	}
+
+	@Override
+	public long nextLong()
+	{
+		return mix64(_seed+=_gamma);
+	}
+
+	@Override
+	public RandomSource split()
+	{
+		return new SplitMix64Random(nextLong(),mixGamma(_seed+=_gamma));
+	}
+
+	/**
+	 * Scramble the bits of a value, so that close values give unrelated results.
+	 */
+	public static long mix64(long z)
+	{
+		z=(z^(z>>>30))*0xbf58476d1ce4e5b9L;
+		z=(z^(z>>>27))*0x94d049bb133111ebL;
+		return z^(z>>>31);
+	}
+
+	/**
+	 * An odd gamma with enough bit transitions to make a good sequence.
+	 */
+	static long mixGamma(long z)
+	{
+		z=(z^(z>>>33))*0xff51afd7ed558ccdL;
+		z=(z^(z>>>33))*0xc4ceb9fe1a85ec53L;
+		z=(z^(z>>>33))|1L;
+		int n=Long.bitCount(z^(z>>>1));
+		return (n<24) ? z^0xaaaaaaaaaaaaaaaaL : z;
+	}
+}
@@ -17,8 +17,6 @@
 
 package com.yahoo.ycsb.generator;
 
-import java.util.Random;
-
 import com.yahoo.ycsb.Utils;
 
 /**
@@ -27,6 +25,7 @@ import com.yahoo.ycsb.Utils;
 public class UniformIntegerGenerator extends IntegerGenerator 
 {
 	int _lb,_ub,_interval;
+	RandomSource _random;
 	
 	/**
 	 * Creates a generator that will return integers uniformly randomly from the interval [lb,ub] inclusive (that is, lb and ub are possible values)
@@ -39,12 +38,23 @@ public class UniformIntegerGenerator extends IntegerGenerator
 		_lb=lb;
 		_ub=ub;
 		_interval=_ub-_lb+1;
+		_random=Utils.threadRandom();
+	}
+
+	/**
+	 * Creates a generator of the same interval as another one, for another thread to use.
+	 */
+	public UniformIntegerGenerator(UniformIntegerGenerator other, RandomSource random)
+	{
+		this(other._lb,other._ub);
+		_random=random;
+		setLastInt(other.lastInt());
 	}
 	
 	@Override
 	public int nextInt() 
 	{
-		int ret=Utils.random().nextInt(_interval)+_lb;
+		int ret=_random.nextInt(_interval)+_lb;
 		setLastInt(ret);
 		
 		return ret;
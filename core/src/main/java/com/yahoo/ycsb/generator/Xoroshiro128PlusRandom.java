@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+package com.yahoo.ycsb.generator;
+
+/**
+ * The xoroshiro128+ generator of Blackman and Vigna: 128 bits of state, a period of 2^128-1 and a few shifts and rotations
+ * per number. The lowest bits are the weakest, so numbers are taken from the highest ones. Splitting hands the current
+ * state over to the new source and jumps this one 2^64 numbers ahead, so that the two sequences never overlap.
+ */
+public class Xoroshiro128PlusRandom extends RandomSource
+{
+	private static final long serialVersionUID=1L;
+
+	static final long[] JUMP={0xdf900294d8f554a5L,0x170865df4b3201fcL};
+
+	long _s0;
+	long _s1;
+
+	public Xoroshiro128PlusRandom(long seed)
+	{
+		seed(seed);
+	}
+
+	Xoroshiro128PlusRandom(long s0, long s1)
+	{
+		_s0=s0;
+		_s1=s1;
+	}
+
+	/**
+	 * The state is filled from a SplitMix64 generator, as its authors recommend, and is never all zeros.
+	 */
+	@Override
+	protected void seed(long seed)
+	{
+		SplitMix64Random seeds=new SplitMix64Random(seed);
+		_s0=seeds.nextLong();
+		_s1=seeds.nextLong();
+		if ((_s0|_s1)==0)
+		{
+			_s0=SplitMix64Random.GOLDEN_GAMMA;
+		}
+	}
+
+	@Override
+	public long nextLong()
+	{
+		long s0=_s0;
+		long s1=_s1;
+		long result=s0+s1;
+		s1^=s0;
+		_s0=Long.rotateLeft(s0,24)^s1^(s1<<16);
+		_s1=Long.rotateLeft(s1,37);
+		return result;
+	}
+
+	@Override
+	public RandomSource split()
+	{
+		RandomSource split=new Xoroshiro128PlusRandom(_s0,_s1);
+		jump();
+		return split;
+	}
+
+	/**
+	 * Move 2^64 numbers ahead.
+	 */
+	void jump()
+	{
+		long s0=0;
+		long s1=0;
+		for (int i=0; i<JUMP.length; i++)
+		{
+			for (int b=0; b<64; b++)
+			{
+				if ((JUMP[i]&(1L<<b))!=0)
+				{
+					s0^=_s0;
+					s1^=_s1;
+				}
+				nextLong();
+			}
+		}
+		_s0=s0;
+		_s1=s1;
+	}
+}
@@ -17,8 +17,6 @@
 
 package com.yahoo.ycsb.generator;
 
-import java.util.Random;
-
 import com.yahoo.ycsb.Utils;
 
 /**
@@ -78,6 +76,11 @@ public class ZipfianGenerator extends IntegerGenerator
 	 */
 	boolean allowitemcountdecrease=false;
 
+	/**
+	 * The random numbers the items are drawn from.
+	 */
+	RandomSource random;
+
 	/******************************* Constructors **************************************/
 
 	/**
@@ -135,6 +138,7 @@ public class ZipfianGenerator extends IntegerGenerator
 		items=max-min+1;
 		base=min;
 		zipfianconstant=_zipfianconstant;
+		random=Utils.threadRandom();
 
 		theta=zipfianconstant;
 
@@ -151,6 +155,32 @@ public class ZipfianGenerator extends IntegerGenerator
 		nextInt();
 		//System.out.println("XXXX 4 XXXX");
 	}
+
+	/**
+	 * Create a generator of the same distribution as another one, for another thread to use. The precomputed zetan and eta
+	 * are taken from the other generator rather than computed again, and from then on each generator updates its own.
+	 * 
+	 * @param other The generator to copy.
+	 * @param _random The random numbers to draw the items from.
+	 */
+	public ZipfianGenerator(ZipfianGenerator other, RandomSource _random)
+	{
+		random=_random;
+		synchronized(other)
+		{
+			items=other.items;
+			base=other.base;
+			zipfianconstant=other.zipfianconstant;
+			theta=other.theta;
+			zeta2theta=other.zeta2theta;
+			alpha=other.alpha;
+			zetan=other.zetan;
+			countforzeta=other.countforzeta;
+			eta=other.eta;
+			allowitemcountdecrease=other.allowitemcountdecrease;
+		}
+		setLastInt(other.lastInt());
+	}
 	
 	/**************************************************************************/
 	
@@ -271,7 +301,7 @@ public class ZipfianGenerator extends IntegerGenerator
 			}
 		}
 
-		double u=Utils.random().nextDouble();
+		double u=random.nextDouble();
 		double uz=u*zetan;
 
 		if (uz<1.0)
@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measures what the client itself costs, to tell whether the client or the
+ * database is the bottleneck: the CPU time and the memory allocated by the
+ * client threads, the CPU time of the whole client JVM and its garbage
+ * collections.
+ *
+ * The DB operations are measured one by one, by a Sampler per DBWrapper: CPU
+ * time and allocated bytes are charged to the operation type, and operations
+ * during which the client JVM collected garbage are counted and also recorded
+ * under the name "ClientGC-" + operation, so their latencies can be told
+ * apart from the others.
+ *
+ * Enabled with measurement.clientoverhead=true. Allocated bytes are only
+ * available on JVMs that provide com.sun.management.ThreadMXBean.
+ */
+public class ClientOverhead {
+
+    public static final String CLIENT_OVERHEAD = "measurement.clientoverhead";
+    public static final String CLIENT_OVERHEAD_DEFAULT = "false";
+    static final String GC_PREFIX = "ClientGC-";
+    static final String METRIC = "CLIENT";
+    // slots of the stats array of each operation
+    static final int OPERATIONS = 0;
+    static final int CPUTIME = 1;
+    static final int ALLOCATED = 2;
+    static final int DURINGGC = 3;
+    Measurements _measurements;
+    ThreadMXBean _threads;
+    com.sun.management.ThreadMXBean _allocations;
+    OperatingSystemMXBean _os;
+    GarbageCollectorMXBean[] _collectors;
+    // live client threads, by id, and the totals of the finished ones
+    ConcurrentHashMap<Long, Long> _clients;
+    StripedLongArray _finished;
+    // stats of each operation and index of its ClientGC- operation, by
+    // operation index. replaced when an operation is added, never written to
+    volatile StripedLongArray[] _operations;
+    volatile int[] _gcoperations;
+    // totals at the previous getSummary()
+    long _lasttime;
+    long[] _lasttotals;
+
+    ClientOverhead(Measurements measurements) {
+        _measurements = measurements;
+        _threads = ManagementFactory.getThreadMXBean();
+        if (_threads.isThreadCpuTimeSupported()) {
+            _threads.setThreadCpuTimeEnabled(true);
+        }
+        if (_threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) _threads;
+            if (allocations.isThreadAllocatedMemorySupported()) {
+                allocations.setThreadAllocatedMemoryEnabled(true);
+                _allocations = allocations;
+            }
+        }
+        _os = ManagementFactory.getOperatingSystemMXBean();
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        _collectors = collectors.toArray(new GarbageCollectorMXBean[collectors.size()]);
+        _clients = new ConcurrentHashMap<Long, Long>();
+        _finished = new StripedLongArray(2);
+        _operations = new StripedLongArray[0];
+        _gcoperations = new int[0];
+        _lasttime = System.nanoTime();
+        _lasttotals = totals();
+    }
+
+    /**
+     * Called by each client thread when it starts.
+     */
+    public void threadStarted() {
+        long id = Thread.currentThread().getId();
+        _clients.put(id, id);
+    }
+
+    /**
+     * Called by each client thread when it is done, to keep its totals.
+     */
+    public void threadFinished() {
+        long id = Thread.currentThread().getId();
+        _finished.add(0, Math.max(0, _threads.getCurrentThreadCpuTime()));
+        _finished.add(1, allocatedBytes(id));
+        _clients.remove(id);
+    }
+
+    long allocatedBytes(long threadid) {
+        return (_allocations == null) ? 0 : Math.max(0, _allocations.getThreadAllocatedBytes(threadid));
+    }
+
+    long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : _collectors) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : _collectors) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    long processCpuTime() {
+        if (_os instanceof com.sun.management.OperatingSystemMXBean) {
+            return Math.max(0, ((com.sun.management.OperatingSystemMXBean) _os).getProcessCpuTime());
+        }
+        return 0;
+    }
+
+    /**
+     * CPU time (ns) and allocated bytes of all the client threads, CPU time
+     * (ns) of the JVM, number and time (ms) of its garbage collections.
+     */
+    long[] totals() {
+        long cpu = _finished.sum(0);
+        long allocated = _finished.sum(1);
+        for (Long id : _clients.keySet()) {
+            cpu += Math.max(0, _threads.getThreadCpuTime(id));
+            allocated += allocatedBytes(id);
+        }
+        return new long[]{cpu, allocated, processCpuTime(), gcCount(), gcTime()};
+    }
+
+    StripedLongArray getOperation(int operation) {
+        StripedLongArray[] ops = _operations;
+        if (operation < ops.length && ops[operation] != null) {
+            return ops[operation];
+        }
+        return createOperation(operation);
+    }
+
+    private synchronized StripedLongArray createOperation(int operation) {
+        StripedLongArray[] ops = _operations;
+        if (operation < ops.length && ops[operation] != null) {
+            return ops[operation];
+        }
+        int[] gcops = Arrays.copyOf(_gcoperations, Math.max(_gcoperations.length, operation + 1));
+        gcops[operation] = _measurements.getOperation(GC_PREFIX + _measurements.operationnames.get(operation));
+        _gcoperations = gcops;
+        ops = Arrays.copyOf(ops, Math.max(ops.length, operation + 1));
+        ops[operation] = new StripedLongArray(4);
+        _operations = ops;
+        return ops[operation];
+    }
+
+    /**
+     * Measures the operations of one client thread. Not thread safe, each
+     * DBWrapper has its own.
+     */
+    public class Sampler {
+
+        long _cpu;
+        long _allocated;
+        long _gccount;
+
+        /**
+         * Called right before the operation.
+         */
+        public void begin() {
+            _gccount = gcCount();
+            _allocated = allocatedBytes(Thread.currentThread().getId());
+            _cpu = _threads.getCurrentThreadCpuTime();
+        }
+
+        /**
+         * Called right after the operation.
+         *
+         * @param operation index of the operation
+         * @param startTime System.nanoTime() when the operation started
+         * @param latency in us
+         */
+        public void end(int operation, long startTime, int latency) {
+            long cpu = _threads.getCurrentThreadCpuTime() - _cpu;
+            long allocated = allocatedBytes(Thread.currentThread().getId()) - _allocated;
+            boolean duringgc = gcCount() != _gccount;
+
+            StripedLongArray stats = getOperation(operation);
+            stats.increment(OPERATIONS);
+            stats.add(CPUTIME, cpu);
+            stats.add(ALLOCATED, allocated);
+            if (duringgc) {
+                stats.increment(DURINGGC);
+                _measurements.measure(_gcoperations[operation], startTime, latency);
+            }
+        }
+    }
+
+    public Sampler newSampler() {
+        return new Sampler();
+    }
+
+    /**
+     * Return a one line summary of the overhead since the previous call.
+     */
+    public synchronized String getSummary() {
+        long now = System.nanoTime();
+        long[] totals = totals();
+        double seconds = (now - _lasttime) / 1e9;
+        DecimalFormat d = new DecimalFormat("#.##");
+        String summary = "[" + METRIC
+                + " CpuUsage(cores)=" + d.format((totals[0] - _lasttotals[0]) / 1e9 / seconds)
+                + " ProcessCpuUsage(cores)=" + d.format((totals[2] - _lasttotals[2]) / 1e9 / seconds)
+                + " Allocated(MB/s)=" + d.format((totals[1] - _lasttotals[1]) / 1048576.0 / seconds)
+                + " GcCount=" + (totals[3] - _lasttotals[3])
+                + " GcTime(ms)=" + (totals[4] - _lasttotals[4]) + "]";
+        _lasttime = now;
+        _lasttotals = totals;
+        return summary;
+    }
+
+    public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+        long[] totals = totals();
+        exporter.write(METRIC, "CpuTime(ms)", (int) (totals[0] / 1000000));
+        exporter.write(METRIC, "Allocated(MB)", totals[1] / 1048576.0);
+        exporter.write(METRIC, "ProcessCpuTime(ms)", (int) (totals[2] / 1000000));
+        exporter.write(METRIC, "GcCount", (int) totals[3]);
+        exporter.write(METRIC, "GcTime(ms)", (int) totals[4]);
+
+        StripedLongArray[] ops = _operations;
+        for (int i = 0; i < ops.length; i++) {
+            if (ops[i] == null) {
+                continue;
+            }
+            long operations = ops[i].sum(OPERATIONS);
+            String name = _measurements.operationnames.get(i);
+            exporter.write(name, "ClientCpuPerOperation(us)", ops[i].sum(CPUTIME) / 1000.0 / operations);
+            exporter.write(name, "ClientAllocatedBytesPerOperation", ((double) ops[i].sum(ALLOCATED)) / operations);
+            exporter.write(name, "OperationsDuringClientGc", (int) ops[i].sum(DURINGGC));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+/**
+ * A histogram of non-negative long values with log-linear buckets, in the
+ * style of HdrHistogram. Values are grouped in power-of-two ranges and each
+ * range is split in the same number of linear sub-buckets, so every recorded
+ * value is kept with a fixed number of significant decimal digits while the
+ * memory used only grows with the logarithm of the largest trackable value.
+ *
+ * For example, with 2 significant digits and a highest value of one hour in
+ * microseconds there are about 3300 buckets, and any value is reported within
+ * 1% of what was recorded.
+ *
+ * Recording does not lock, the counts are kept in a StripedLongArray. A
+ * histogram has many more slots than the other striped arrays, so it gets
+ * fewer stripes: as many as fit in MAX_COUNTS.
+ */
+class LogLinearHistogram {
+
+    /**
+     * Largest number of counts kept over all the stripes (1 MB).
+     */
+    static final int MAX_COUNTS = 1 << 17;
+
+    private final long _highest;
+    private final int _subbucketbits;
+    private final int _subbuckethalfbits;
+    private final long _subbucketmask;
+    private final int _length;
+    private final StripedLongArray _counts;
+
+    /**
+     * @param highest the highest value that can be told apart from the others;
+     * larger values are counted in the last bucket
+     * @param significantdigits number of significant decimal digits kept for
+     * every value, between 1 and 5
+     */
+    LogLinearHistogram(long highest, int significantdigits) {
+        if (significantdigits < 1 || significantdigits > 5) {
+            throw new IllegalArgumentException("significant digits must be between 1 and 5, got " + significantdigits);
+        }
+        if (highest < 2) {
+            throw new IllegalArgumentException("highest trackable value must be at least 2, got " + highest);
+        }
+        long largestsinglecount = 2 * (long) Math.pow(10, significantdigits);
+        int bits = 1;
+        while ((1L << bits) < largestsinglecount) {
+            bits++;
+        }
+        _highest = highest;
+        _subbucketbits = bits;
+        _subbuckethalfbits = bits - 1;
+        _subbucketmask = (1L << bits) - 1;
+        _length = countsIndex(highest) + 1;
+        _counts = new StripedLongArray(_length, 0, stripesFor(_length));
+    }
+
+    /**
+     * Number of stripes for a histogram of the given number of slots: the
+     * default number, halved until they fit in MAX_COUNTS, and at least one.
+     */
+    static int stripesFor(int length) {
+        int stripes = StripedLongArray.STRIPES;
+        while (stripes > 1 && (long) stripes * length > MAX_COUNTS) {
+            stripes >>= 1;
+        }
+        return stripes;
+    }
+
+    private int countsIndex(long value) {
+        int bucket = 64 - Long.numberOfLeadingZeros(value | _subbucketmask) - _subbucketbits;
+        int subbucket = (int) (value >>> bucket);
+        return ((bucket + 1) << _subbuckethalfbits) + (subbucket - (1 << _subbuckethalfbits));
+    }
+
+    /**
+     * Smallest value that is counted in the given slot.
+     */
+    private long lowestValueAt(int index) {
+        int bucket = (index >> _subbuckethalfbits) - 1;
+        long subbucket = (index & ((1 << _subbuckethalfbits) - 1)) + (1 << _subbuckethalfbits);
+        if (bucket < 0) {
+            subbucket -= 1 << _subbuckethalfbits;
+            bucket = 0;
+        }
+        return subbucket << bucket;
+    }
+
+    /**
+     * Largest value that is counted in the given slot.
+     */
+    long highestValueAt(int index) {
+        int bucket = Math.max((index >> _subbuckethalfbits) - 1, 0);
+        return lowestValueAt(index) + (1L << bucket) - 1;
+    }
+
+    /**
+     * Value in the middle of the range counted in the given slot, used as the
+     * representative of all the values counted there.
+     */
+    long medianValueAt(int index) {
+        return (lowestValueAt(index) + highestValueAt(index)) / 2;
+    }
+
+    int length() {
+        return _length;
+    }
+
+    long highestTrackableValue() {
+        return _highest;
+    }
+
+    void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > _highest) {
+            value = _highest;
+        }
+        _counts.increment(countsIndex(value));
+    }
+
+    /**
+     * Sum all the stripes into a plain array, one slot per bucket.
+     */
+    long[] counts() {
+        long[] counts = new long[_length];
+        for (int i = 0; i < _length; i++) {
+            counts[i] = _counts.sum(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Same as counts(), but the buckets are emptied as they are read.
+     */
+    long[] countsThenReset() {
+        long[] counts = new long[_length];
+        for (int i = 0; i < _length; i++) {
+            counts[i] = _counts.sumThenReset(i);
+        }
+        return counts;
+    }
+
+    /**
+     * Compute several percentiles in one pass over merged counts.
+     *
+     * @param counts counts as returned by counts()
+     * @param percentiles percentiles to compute, in ascending order, each
+     * between 0 and 100
+     * @return for each percentile the highest value equivalent to the bucket it
+     * falls in, or 0 when nothing was recorded
+     */
+    long[] valuesAtPercentiles(long[] counts, double[] percentiles) {
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i];
+        }
+        long[] values = new long[percentiles.length];
+        if (total == 0) {
+            return values;
+        }
+        int p = 0;
+        long seen = 0;
+        for (int i = 0; i < counts.length && p < percentiles.length; i++) {
+            seen += counts[i];
+            while (p < percentiles.length && seen >= Math.max(1, (long) Math.ceil(total * percentiles[p] / 100.0))) {
+                values[p] = highestValueAt(i);
+                p++;
+            }
+        }
+        return values;
+    }
+}
@@ -19,8 +19,10 @@ import br.ufc.lsbd.benchxtend.configuration.Distribution;
 import br.ufc.lsbd.benchxtend.configuration.Sla;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Properties;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Collects latency measurements, and reports them when requested.
@@ -32,12 +34,62 @@ public class Measurements {
 
     private static final String MEASUREMENT_TYPE = "measurementtype";
     private static final String MEASUREMENT_TYPE_DEFAULT = "histogram";
+    /**
+     * Which latency is recorded for each operation: "op" for the service time
+     * (from the moment the operation was actually issued), "intended" for the
+     * response time (from the moment the throttle scheduled it) or "both".
+     * When both are recorded, the response time of an operation is exported
+     * right after its service time, under the name "Intended-" + operation.
+     */
+    public static final String MEASUREMENT_INTERVAL = "measurement.interval";
+    public static final String MEASUREMENT_INTERVAL_DEFAULT = "op";
+    static final String INTENDED_PREFIX = "Intended-";
+    /**
+     * Set by the client when the status is shown during the run; the latency
+     * percentiles of each status interval are then kept as well. They are also
+     * kept when the metrics endpoint is enabled.
+     */
+    public static final String STATUS = "status";
     static Measurements singleton = null;
     static Properties measurementproperties = null;
     static long workloadStartTime = -1;
     static Sla sla;
     static Distribution distribution;
-    HashMap<String, OneMeasurement> data;
+    /**
+     * Index of the operations measured by DBWrapper and CoreWorkload. Any other
+     * operation gets the next free index the first time getOperation() sees
+     * its name.
+     */
+    public static final int READ = 0;
+    public static final int SCAN = 1;
+    public static final int UPDATE = 2;
+    public static final int INSERT = 3;
+    public static final int DELETE = 4;
+    public static final int READ_MODIFY_WRITE = 5;
+    static final String[] OPERATIONS = {"READ", "SCAN", "UPDATE", "INSERT", "DELETE", "READ-MODIFY-WRITE"};
+    // names of the operations, by index
+    Vector<String> operationnames;
+    ConcurrentHashMap<String, Integer> operations;
+    // service and response time measurements, by operation index. the arrays
+    // are replaced when a measurement is created, never written to, so they
+    // can be read without locking
+    volatile OneMeasurement[] measurements;
+    volatile OneMeasurement[] intendedmeasurements;
+
+    /**
+     * Time (System.nanoTime()) the operation being executed by a thread was
+     * scheduled to start at, or 0 if it was not scheduled.
+     */
+    static class StartTimeHolder {
+
+        long time;
+    }
+    ThreadLocal<StartTimeHolder> intendedstarttime = new ThreadLocal<StartTimeHolder>() {
+        @Override
+        protected StartTimeHolder initialValue() {
+            return new StartTimeHolder();
+        }
+    };
 
     public static void setProperties(Properties props) {
         measurementproperties = props;
@@ -66,19 +118,52 @@ public class Measurements {
     }
     
     boolean histogram = true;
+    boolean hdrhistogram = false;
     boolean individual = false;
+    boolean raw = false;
+    boolean measureop = true;
+    boolean measureintended = false;
+    boolean status = false;
+    RawLatencyLog rawlog;
+    ClientOverhead clientoverhead;
     private Properties _props;
     
     /**
      * Create a new object with the specified properties.
      */
     private Measurements(Properties props) {
-        data = new HashMap<String, OneMeasurement>();
+        operationnames = new Vector<String>();
+        operations = new ConcurrentHashMap<String, Integer>();
+        for (String name : OPERATIONS) {
+            getOperation(name);
+        }
+        measurements = new OneMeasurement[OPERATIONS.length];
+        intendedmeasurements = new OneMeasurement[OPERATIONS.length];
 
         _props = props;
 
+        status = Boolean.parseBoolean(_props.getProperty(STATUS, "false")) || _props.getProperty(MetricsServer.PORT) != null;
+
+        if (Boolean.parseBoolean(_props.getProperty(ClientOverhead.CLIENT_OVERHEAD, ClientOverhead.CLIENT_OVERHEAD_DEFAULT))) {
+            clientoverhead = new ClientOverhead(this);
+        }
+
+        String interval = _props.getProperty(MEASUREMENT_INTERVAL, MEASUREMENT_INTERVAL_DEFAULT);
+        if (interval.compareTo("intended") == 0) {
+            measureop = false;
+            measureintended = true;
+        } else if (interval.compareTo("both") == 0) {
+            measureintended = true;
+        } else if (interval.compareTo("op") != 0) {
+            System.out.println("ERROR: Unknown " + MEASUREMENT_INTERVAL + " " + interval + ". Only the service time will be measured.");
+        }
+
         if (_props.getProperty(MEASUREMENT_TYPE, MEASUREMENT_TYPE_DEFAULT).compareTo("individual") == 0) {
             individual = true;
+        } else if (_props.getProperty(MEASUREMENT_TYPE, MEASUREMENT_TYPE_DEFAULT).compareTo("hdrhistogram") == 0) {
+            hdrhistogram = true;
+        } else if (_props.getProperty(MEASUREMENT_TYPE, MEASUREMENT_TYPE_DEFAULT).compareTo("raw") == 0) {
+            raw = true;
         } else {
             if (_props.getProperty(MEASUREMENT_TYPE, MEASUREMENT_TYPE_DEFAULT).compareTo("histogram") == 0) {
                 histogram = true;
@@ -104,6 +189,20 @@ public class Measurements {
             }else{
                 return new OneMeasurementIndividual(name, _props, sla, distribution, workloadStartTime);
             }
+        } else if (raw) {
+            if (rawlog == null) {
+                try {
+                    rawlog = new RawLatencyLog(_props, (workloadStartTime == -1) ? System.nanoTime() : workloadStartTime);
+                } catch (IOException e) {
+                    System.out.println("ERROR: Could not create the raw latency log (" + e.getMessage() + "). "
+                            + "Histogram measurement will be used instead.");
+                    raw = false;
+                    return new OneMeasurementHistogram(name, _props);
+                }
+            }
+            return new OneMeasurementRaw(name, _props, rawlog, sla, distribution);
+        } else if (hdrhistogram) {
+            return new OneMeasurementHdrHistogram(name, _props);
         } else {
             if (histogram) {
                 return new OneMeasurementHistogram(name, _props);
@@ -114,27 +213,150 @@ public class Measurements {
     }
 
     /**
-     * Report a single value of a single metric. E.g. for read latency,
-     * operation="READ" and latency is the measured value.
+     * Return the index of an operation, registering it the first time its name
+     * is seen. Callers measuring the same operation many times should keep the
+     * index rather than pass the name each time.
      */
-    public synchronized void measure(String operation, int latency) {
-        if (!data.containsKey(operation)) {
+    public int getOperation(String name) {
+        Integer index = operations.get(name);
+        if (index == null) {
             synchronized (this) {
-                if (!data.containsKey(operation)) {
-                    data.put(operation, constructOneMeasurement(operation));
+                index = operations.get(name);
+                if (index == null) {
+                    index = operationnames.size();
+                    operationnames.add(name);
+                    operations.put(name, index);
                 }
             }
         }
+        return index;
+    }
+
+    /**
+     * Return the measurement for an operation, creating it the first time the
+     * operation is measured. Only the creation is synchronized; the lookup
+     * itself is an array index, so client threads do not serialize on this
+     * object.
+     */
+    OneMeasurement getOneMeasurement(int operation) {
+        OneMeasurement[] ms = measurements;
+        if (operation < ms.length && ms[operation] != null) {
+            return ms[operation];
+        }
+        return createMeasurement(operation, false);
+    }
+
+    /**
+     * Same as getOneMeasurement(operation), for the response time of the
+     * operation.
+     */
+    OneMeasurement getIntendedMeasurement(int operation) {
+        OneMeasurement[] ms = intendedmeasurements;
+        if (operation < ms.length && ms[operation] != null) {
+            return ms[operation];
+        }
+        return createMeasurement(operation, true);
+    }
+
+    private synchronized OneMeasurement createMeasurement(int operation, boolean intended) {
+        OneMeasurement[] ms = intended ? intendedmeasurements : measurements;
+        if (operation < ms.length && ms[operation] != null) {
+            return ms[operation];
+        }
+        String name = operationnames.get(operation);
+        OneMeasurement m = constructOneMeasurement(intended ? INTENDED_PREFIX + name : name);
+        if (status) {
+            m = new OneMeasurementInterval(m, _props);
+        }
+        ms = Arrays.copyOf(ms, Math.max(ms.length, operationnames.size()));
+        ms[operation] = m;
+        if (intended) {
+            intendedmeasurements = ms;
+        } else {
+            measurements = ms;
+        }
+        return m;
+    }
+
+    /**
+     * Return the measurement of the client overhead, or null if it is not
+     * enabled (measurement.clientoverhead).
+     */
+    public ClientOverhead getClientOverhead() {
+        return clientoverhead;
+    }
+
+    /**
+     * Set the time (System.nanoTime()) the operations the calling thread is
+     * about to execute were scheduled to start at, or 0 if they are not
+     * scheduled. Response times are measured from it.
+     */
+    public void setIntendedStartTimeNs(long time) {
+        if (measureintended) {
+            intendedstarttime.get().time = time;
+        }
+    }
 
+    /**
+     * Return the time set by setIntendedStartTimeNs() for the calling thread,
+     * or 0 if none was set.
+     */
+    public long getIntendedStartTimeNs() {
+        if (!measureintended) {
+            return 0;
+        }
+        return intendedstarttime.get().time;
+    }
+
+    /**
+     * Report a single value of a single metric. E.g. for read latency,
+     * operation=READ and latency is the measured value.
+     *
+     * @param operation index of the operation, see getOperation()
+     */
+    public void measure(int operation, int latency) {
+        if (!measureop) {
+            return;
+        }
         try {
-            data.get(operation).measure(latency);
+            getOneMeasurement(operation).measure(latency);
         } catch (java.lang.ArrayIndexOutOfBoundsException e) {
             System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
             e.printStackTrace();
             e.printStackTrace(System.out);
         }
     }
-    
+
+    /**
+     * Report a single value of a single metric. E.g. for read latency,
+     * operation="READ" and latency is the measured value.
+     */
+    public void measure(String operation, int latency) {
+        measure(getOperation(operation), latency);
+    }
+
+    /**
+     * Report a single value of a single metric, but reports also the time
+     * when the query was started. E.g. for read latency, operation=READ and
+     * latency is the measured value.
+     *
+     * @param operation index of the operation, see getOperation()
+     * @param queryStartTime 
+     * @param latency 
+     */
+    public void measure(int operation, long queryStartTime, int latency) {
+        if (!measureop) {
+            return;
+        }
+        try {
+            getOneMeasurement(operation).measure(queryStartTime, latency);
+        } catch (java.lang.ArrayIndexOutOfBoundsException e) {
+            System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
+            e.printStackTrace();
+            e.printStackTrace(System.out);
+        }
+    }
+
     /**
      * Report a single value of a single metric, but reports also the time
      * when the query was started. E.g. for read latency, operation="READ" and 
@@ -145,16 +367,28 @@ public class Measurements {
      * @param latency 
      */
     public void measure(String operation, long queryStartTime, int latency) {
-        if (!data.containsKey(operation)) {
-            synchronized (this) {
-                if (!data.containsKey(operation)) {
-                    data.put(operation, constructOneMeasurement(operation));
-                }
-            }
-        }
+        measure(getOperation(operation), queryStartTime, latency);
+    }
 
+    /**
+     * Report the response time of a single operation, i.e. the time from the
+     * moment it was scheduled to start at until it completed. Unlike the
+     * latency given to measure(), it includes the time the operation had to
+     * wait because the previous ones were late, so a stall of the database is
+     * counted against every operation it delayed and not just the one that
+     * was running (coordinated omission).
+     *
+     * @param operation index of the operation, see getOperation()
+     * @param intendedStartTime System.nanoTime() the operation was scheduled
+     * to start at
+     * @param latency response time, in us
+     */
+    public void measureIntended(int operation, long intendedStartTime, int latency) {
+        if (!measureintended) {
+            return;
+        }
         try {
-            data.get(operation).measure(queryStartTime, latency);
+            getIntendedMeasurement(operation).measure(intendedStartTime, latency);
         } catch (java.lang.ArrayIndexOutOfBoundsException e) {
             System.out.println("ERROR: java.lang.ArrayIndexOutOfBoundsException - ignoring and continuing");
             e.printStackTrace();
@@ -162,18 +396,32 @@ public class Measurements {
         }
     }
 
+    /**
+     * Same as measureIntended(int, long, int), with the name of the operation.
+     */
+    public void measureIntended(String operation, long intendedStartTime, int latency) {
+        measureIntended(getOperation(operation), intendedStartTime, latency);
+    }
+
     /**
      * Report a return code for a single DB operation.
+     *
+     * @param operation index of the operation, see getOperation()
      */
-    public void reportReturnCode(String operation, int code) {
-        if (!data.containsKey(operation)) {
-            synchronized (this) {
-                if (!data.containsKey(operation)) {
-                    data.put(operation, constructOneMeasurement(operation));
-                }
-            }
+    public void reportReturnCode(int operation, int code) {
+        if (measureop) {
+            getOneMeasurement(operation).reportReturnCode(code);
         }
-        data.get(operation).reportReturnCode(code);
+        if (measureintended) {
+            getIntendedMeasurement(operation).reportReturnCode(code);
+        }
+    }
+
+    /**
+     * Report a return code for a single DB operation.
+     */
+    public void reportReturnCode(String operation, int code) {
+        reportReturnCode(getOperation(operation), code);
     }
 
     /**
@@ -183,8 +431,49 @@ public class Measurements {
      * @throws IOException Thrown if the export failed.
      */
     public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
-        for (OneMeasurement measurement : data.values()) {
-            measurement.exportMeasurements(exporter);
+        // the response time of an operation comes right after its service time
+        OneMeasurement[] ms = measurements;
+        OneMeasurement[] ims = intendedmeasurements;
+        for (int i = 0; i < Math.max(ms.length, ims.length); i++) {
+            if (i < ms.length && ms[i] != null) {
+                ms[i].exportMeasurements(exporter);
+            }
+            if (i < ims.length && ims[i] != null) {
+                ims[i].exportMeasurements(exporter);
+            }
+        }
+        if (clientoverhead != null) {
+            clientoverhead.exportMeasurements(exporter);
+        }
+    }
+
+    /**
+     * Return the measurements keeping the latency percentiles of each
+     * interval, service times first. Empty unless the status or the metrics
+     * endpoint is enabled.
+     */
+    public Vector<OneMeasurementInterval> getIntervalMeasurements() {
+        Vector<OneMeasurementInterval> intervals = new Vector<OneMeasurementInterval>();
+        for (OneMeasurement m : measurements) {
+            if (m instanceof OneMeasurementInterval) {
+                intervals.add((OneMeasurementInterval) m);
+            }
+        }
+        for (OneMeasurement m : intendedmeasurements) {
+            if (m instanceof OneMeasurementInterval) {
+                intervals.add((OneMeasurementInterval) m);
+            }
+        }
+        return intervals;
+    }
+
+    /**
+     * End the current interval of all the operations, without printing
+     * anything. getSummary() does the same when the status is shown.
+     */
+    public void rollIntervals() {
+        for (OneMeasurementInterval m : getIntervalMeasurements()) {
+            m.rollInterval();
         }
     }
 
@@ -193,8 +482,18 @@ public class Measurements {
      */
     public String getSummary() {
         String ret = "";
-        for (OneMeasurement m : data.values()) {
-            ret += m.getSummary() + " ";
+        for (OneMeasurement m : measurements) {
+            if (m != null) {
+                ret += m.getSummary() + " ";
+            }
+        }
+        for (OneMeasurement m : intendedmeasurements) {
+            if (m != null) {
+                ret += m.getSummary() + " ";
+            }
+        }
+        if (clientoverhead != null) {
+            ret += clientoverhead.getSummary() + " ";
         }
 
         return ret;
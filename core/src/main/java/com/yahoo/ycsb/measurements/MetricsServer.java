@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.yahoo.ycsb.ClientThread;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Properties;
+import java.util.Vector;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the state of the running benchmark over HTTP, in the Prometheus text
+ * format, so that dashboards can scrape the client while it drives the load:
+ * <pre>
+ *   ycsb_operations_total                operations done so far
+ *   ycsb_active_clients                  client threads running and not asked to stop
+ *   ycsb_interval_operations             per operation, over the last interval
+ *   ycsb_interval_average_latency_us     per operation, over the last interval
+ *   ycsb_interval_latency_us             per operation and percentile (status.percentiles)
+ *   ycsb_interval_max_latency_us         per operation, over the last interval
+ * </pre>
+ * The latencies are those of the last interval ended by the status thread or,
+ * when the status is not shown, by this server every metrics.interval
+ * seconds. Serving a request only reads the kept statistics of that interval,
+ * so it never competes with the client threads recording their operations.
+ *
+ * The throughput is left to the scraper, e.g. rate(ycsb_operations_total[1m])
+ * in Prometheus: a server computing it since the previous request would give
+ * each of two scrapers the throughput since the other one's request.
+ */
+public class MetricsServer {
+
+    /**
+     * Port the endpoint listens on. The endpoint is only started if it is set.
+     */
+    public static final String PORT = "metrics.port";
+    /**
+     * Length of the intervals, in seconds, when the status is not shown.
+     */
+    public static final String INTERVAL = "metrics.interval";
+    public static final String INTERVAL_DEFAULT = "10";
+    public static final String PATH = "/metrics";
+    Vector<? extends Thread> _clients;
+    HttpServer _server;
+    ScheduledExecutorService _roller;
+
+    /**
+     * Start the endpoint if metrics.port is set.
+     *
+     * @return the server, or null if the endpoint is not enabled or could not
+     * be started
+     * @see #MetricsServer(Properties, Vector, boolean)
+     */
+    public static MetricsServer start(Properties props, Vector<? extends Thread> clients, boolean rollintervals) {
+        if (props.getProperty(PORT) == null) {
+            return null;
+        }
+        try {
+            return new MetricsServer(props, clients, rollintervals);
+        } catch (IOException e) {
+            System.out.println("ERROR: Could not start the metrics endpoint on port " + props.getProperty(PORT) + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Start the endpoint.
+     *
+     * @param props the properties of the run
+     * @param clients the ClientThreads driving the load; clients added to it
+     * later are seen by the endpoint
+     * @param rollintervals true if this server must end the latency intervals
+     * itself, i.e. the status is not shown
+     */
+    public MetricsServer(Properties props, Vector<? extends Thread> clients, boolean rollintervals) throws IOException {
+        _clients = clients;
+
+        _server = HttpServer.create(new InetSocketAddress(Integer.parseInt(props.getProperty(PORT))), 0);
+        _server.createContext(PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] body = scrape().getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        _server.start();
+
+        if (rollintervals) {
+            long interval = Long.parseLong(props.getProperty(INTERVAL, INTERVAL_DEFAULT));
+            _roller = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "metrics-interval");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            _roller.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    Measurements.getMeasurements().rollIntervals();
+                }
+            }, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stop serving requests and rolling the intervals.
+     */
+    public void stop() {
+        if (_roller != null) {
+            _roller.shutdownNow();
+        }
+        _server.stop(0);
+    }
+
+    /**
+     * Build the body of a response.
+     */
+    String scrape() {
+        long ops = 0;
+        int active = 0;
+        // clients may be added while iterating, but never removed
+        for (int i = 0; i < _clients.size(); i++) {
+            ClientThread client = (ClientThread) _clients.get(i);
+            ops += client.getOpsDone();
+            if (client.isRunning() && !client.isStopRequested()) {
+                active++;
+            }
+        }
+
+        StringBuilder out = new StringBuilder();
+        header(out, "ycsb_operations_total", "counter", "Operations done by the client threads.");
+        out.append("ycsb_operations_total ").append(ops).append('\n');
+        header(out, "ycsb_active_clients", "gauge", "Client threads running and not asked to stop.");
+        out.append("ycsb_active_clients ").append(active).append('\n');
+
+        Vector<OneMeasurementInterval> measurements = Measurements.getMeasurements().getIntervalMeasurements();
+        if (measurements.isEmpty()) {
+            return out.toString();
+        }
+        // the intervals may be rolled meanwhile, so each one is read only once
+        String[] names = new String[measurements.size()];
+        OneMeasurementInterval.Snapshot[] intervals = new OneMeasurementInterval.Snapshot[measurements.size()];
+        for (int i = 0; i < intervals.length; i++) {
+            names[i] = "{operation=\"" + measurements.get(i).getName() + "\"";
+            intervals[i] = measurements.get(i).getLastInterval();
+        }
+        header(out, "ycsb_interval_operations", "gauge", "Operations in the last interval.");
+        for (int i = 0; i < intervals.length; i++) {
+            out.append("ycsb_interval_operations").append(names[i]).append("} ").append(intervals[i].operations).append('\n');
+        }
+        header(out, "ycsb_interval_average_latency_us", "gauge", "Average latency in the last interval, in us.");
+        for (int i = 0; i < intervals.length; i++) {
+            double average = (intervals[i].operations == 0) ? 0 : ((double) intervals[i].totallatency) / intervals[i].operations;
+            out.append("ycsb_interval_average_latency_us").append(names[i]).append("} ").append(average).append('\n');
+        }
+        header(out, "ycsb_interval_latency_us", "gauge", "Latency percentiles in the last interval, in us.");
+        for (int i = 0; i < intervals.length; i++) {
+            double[] percentiles = measurements.get(i).getPercentiles();
+            for (int p = 0; p < percentiles.length; p++) {
+                out.append("ycsb_interval_latency_us").append(names[i]).append(",quantile=\"").append(percentiles[p] / 100).append("\"} ").append(intervals[i].values[p]).append('\n');
+            }
+        }
+        header(out, "ycsb_interval_max_latency_us", "gauge", "Maximum latency in the last interval, in us.");
+        for (int i = 0; i < intervals.length; i++) {
+            out.append("ycsb_interval_max_latency_us").append(names[i]).append("} ").append(intervals[i].maxlatency).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.Properties;
+
+/**
+ * Take measurements of a given metric, such as READ LATENCY, in a high
+ * resolution log-linear histogram (see LogLinearHistogram). Unlike
+ * OneMeasurementHistogram, which has 1 ms buckets, latencies are kept with a
+ * configurable number of significant digits from 1 us up to
+ * hdrhistogram.max, and percentiles are reported in microseconds.
+ */
+public class OneMeasurementHdrHistogram extends OneMeasurement {
+
+    /**
+     * Number of significant decimal digits kept for each latency.
+     */
+    public static final String SIGNIFICANT_DIGITS = "hdrhistogram.significantdigits";
+    public static final String SIGNIFICANT_DIGITS_DEFAULT = "2";
+    /**
+     * Highest latency (in us) that is tracked precisely. Larger latencies are
+     * counted as this value, but still reported exactly as MaxLatency.
+     */
+    public static final String MAX_LATENCY = "hdrhistogram.max";
+    public static final String MAX_LATENCY_DEFAULT = "3600000000";
+    /**
+     * Comma separated list of percentiles to report, in ascending order.
+     */
+    public static final String PERCENTILES = "hdrhistogram.percentiles";
+    public static final String PERCENTILES_DEFAULT = "50,90,99,99.9,99.99";
+    // slots of the stats array
+    static final int OPERATIONS = 0;
+    static final int TOTALLATENCY = 1;
+    //keep a windowed version of these stats for printing status
+    static final int WINDOWOPERATIONS = 2;
+    static final int WINDOWTOTALLATENCY = 3;
+    LogLinearHistogram histogram;
+    String[] percentilenames;
+    double[] percentiles;
+    StripedLongArray stats;
+    StripedLongArray min;
+    StripedLongArray max;
+    ReturnCodes returncodes;
+
+    public OneMeasurementHdrHistogram(String name, Properties props) {
+        super(name);
+        histogram = new LogLinearHistogram(Long.parseLong(props.getProperty(MAX_LATENCY, MAX_LATENCY_DEFAULT)),
+                Integer.parseInt(props.getProperty(SIGNIFICANT_DIGITS, SIGNIFICANT_DIGITS_DEFAULT)));
+        percentilenames = props.getProperty(PERCENTILES, PERCENTILES_DEFAULT).split(",");
+        percentiles = new double[percentilenames.length];
+        for (int i = 0; i < percentilenames.length; i++) {
+            percentilenames[i] = percentilenames[i].trim();
+            percentiles[i] = Double.parseDouble(percentilenames[i]);
+        }
+        stats = new StripedLongArray(4);
+        min = new StripedLongArray(1, Long.MAX_VALUE);
+        max = new StripedLongArray(1, Long.MIN_VALUE);
+        returncodes = new ReturnCodes();
+    }
+
+    @Override
+    public void reportReturnCode(int code) {
+        returncodes.report(code);
+    }
+
+    @Override
+    public void measure(int latency) {
+        histogram.record(latency);
+        stats.increment(OPERATIONS);
+        stats.add(TOTALLATENCY, latency);
+        stats.increment(WINDOWOPERATIONS);
+        stats.add(WINDOWTOTALLATENCY, latency);
+
+        min.updateMin(0, latency);
+        max.updateMax(0, latency);
+    }
+
+    @Override
+    public void measure(long startTime, int latency) {
+        // unused signature
+        this.measure(latency);
+    }
+
+    @Override
+    public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+        int operations = (int) stats.sum(OPERATIONS);
+        long totallatency = stats.sum(TOTALLATENCY);
+        int maxlatency = (operations == 0) ? -1 : (int) max.max(0);
+        exporter.write(getName(), "Operations", operations);
+        exporter.write(getName(), "AverageLatency(us)", (((double) totallatency) / ((double) operations)));
+        exporter.write(getName(), "MinLatency(us)", (operations == 0) ? -1 : (int) min.min(0));
+        exporter.write(getName(), "MaxLatency(us)", maxlatency);
+
+        long[] values = histogram.valuesAtPercentiles(histogram.counts(), percentiles);
+        for (int i = 0; i < percentiles.length; i++) {
+            // a bucket may reach past the largest latency actually seen
+            exporter.write(getName(), percentilenames[i] + "thPercentileLatency(us)", (int) Math.min(values[i], maxlatency));
+        }
+
+        returncodes.export(getName(), exporter);
+    }
+
+    @Override
+    public String getSummary() {
+        long windowoperations = stats.sumThenReset(WINDOWOPERATIONS);
+        long windowtotallatency = stats.sumThenReset(WINDOWTOTALLATENCY);
+        if (windowoperations == 0) {
+            return "";
+        }
+        DecimalFormat d = new DecimalFormat("#.##");
+        double report = ((double) windowtotallatency) / ((double) windowoperations);
+        return "[" + getName() + " AverageLatency(us)=" + d.format(report) + "]";
+    }
+}
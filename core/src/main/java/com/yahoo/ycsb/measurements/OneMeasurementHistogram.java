@@ -17,14 +17,13 @@ package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
 import java.text.DecimalFormat;
-import java.util.HashMap;
 import java.util.Properties;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 
 /**
  * Take measurements and maintain a histogram of a given metric, such as READ
- * LATENCY.
+ * LATENCY. Measurements are recorded without locking, see StripedLongArray.
  *
  * @author cooperb
  *
@@ -33,67 +32,55 @@ public class OneMeasurementHistogram extends OneMeasurement {
 
     public static final String BUCKETS = "histogram.buckets";
     public static final String BUCKETS_DEFAULT = "1000";
-    int _buckets;
-    int[] histogram;
-    int histogramoverflow;
-    int operations;
-    long totallatency;
+    // slots of the stats array
+    static final int OPERATIONS = 0;
+    static final int TOTALLATENCY = 1;
     //keep a windowed version of these stats for printing status
-    int windowoperations;
-    long windowtotallatency;
-    int min;
-    int max;
-    HashMap<Integer, int[]> returncodes;
+    static final int WINDOWOPERATIONS = 2;
+    static final int WINDOWTOTALLATENCY = 3;
+    int _buckets;
+    // one slot per bucket, plus the overflow slot at index _buckets. everything
+    // is recorded without locking, the stripes are summed up when reporting
+    StripedLongArray histogram;
+    StripedLongArray stats;
+    StripedLongArray min;
+    StripedLongArray max;
+    ReturnCodes returncodes;
 
     public OneMeasurementHistogram(String name, Properties props) {
         super(name);
         _buckets = Integer.parseInt(props.getProperty(BUCKETS, BUCKETS_DEFAULT));
-        histogram = new int[_buckets];
-        histogramoverflow = 0;
-        operations = 0;
-        totallatency = 0;
-        windowoperations = 0;
-        windowtotallatency = 0;
-        min = -1;
-        max = -1;
-        returncodes = new HashMap<Integer, int[]>();
+        histogram = new StripedLongArray(_buckets + 1);
+        stats = new StripedLongArray(4);
+        min = new StripedLongArray(1, Long.MAX_VALUE);
+        max = new StripedLongArray(1, Long.MIN_VALUE);
+        returncodes = new ReturnCodes();
     }
 
     /* (non-Javadoc)
      * @see com.yahoo.ycsb.OneMeasurement#reportReturnCode(int)
      */
-    public synchronized void reportReturnCode(int code) {
-        Integer Icode = code;
-        if (!returncodes.containsKey(Icode)) {
-            int[] val = new int[1];
-            val[0] = 0;
-            returncodes.put(Icode, val);
-        }
-        returncodes.get(Icode)[0]++;
+    public void reportReturnCode(int code) {
+        returncodes.report(code);
     }
 
 
     /* (non-Javadoc)
      * @see com.yahoo.ycsb.OneMeasurement#measure(int)
      */
-    public synchronized void measure(int latency) {
+    public void measure(int latency) {
         if (latency / 1000 >= _buckets) {
-            histogramoverflow++;
+            histogram.increment(_buckets);
         } else {
-            histogram[latency / 1000]++;
-        }
-        operations++;
-        totallatency += latency;
-        windowoperations++;
-        windowtotallatency += latency;
-
-        if ((min < 0) || (latency < min)) {
-            min = latency;
+            histogram.increment(latency / 1000);
         }
+        stats.increment(OPERATIONS);
+        stats.add(TOTALLATENCY, latency);
+        stats.increment(WINDOWOPERATIONS);
+        stats.add(WINDOWTOTALLATENCY, latency);
 
-        if ((max < 0) || (latency > max)) {
-            max = latency;
-        }
+        min.updateMin(0, latency);
+        max.updateMax(0, latency);
     }
 
     @Override
@@ -104,15 +91,22 @@ public class OneMeasurementHistogram extends OneMeasurement {
 
     @Override
     public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+        int operations = (int) stats.sum(OPERATIONS);
+        long totallatency = stats.sum(TOTALLATENCY);
         exporter.write(getName(), "Operations", operations);
         exporter.write(getName(), "AverageLatency(us)", (((double) totallatency) / ((double) operations)));
-        exporter.write(getName(), "MinLatency(us)", min);
-        exporter.write(getName(), "MaxLatency(us)", max);
+        exporter.write(getName(), "MinLatency(us)", (operations == 0) ? -1 : (int) min.min(0));
+        exporter.write(getName(), "MaxLatency(us)", (operations == 0) ? -1 : (int) max.max(0));
+
+        int[] buckets = new int[_buckets];
+        for (int i = 0; i < _buckets; i++) {
+            buckets[i] = (int) histogram.sum(i);
+        }
 
         int opcounter = 0;
         boolean done95th = false;
         for (int i = 0; i < _buckets; i++) {
-            opcounter += histogram[i];
+            opcounter += buckets[i];
             if ((!done95th) && (((double) opcounter) / ((double) operations) >= 0.95)) {
                 exporter.write(getName(), "95thPercentileLatency(ms)", i);
                 done95th = true;
@@ -123,26 +117,23 @@ public class OneMeasurementHistogram extends OneMeasurement {
             }
         }
 
-        for (Integer I : returncodes.keySet()) {
-            int[] val = returncodes.get(I);
-            exporter.write(getName(), "Return=" + I, val[0]);
-        }
+        returncodes.export(getName(), exporter);
 
         for (int i = 0; i < _buckets; i++) {
-            exporter.write(getName(), Integer.toString(i), histogram[i]);
+            exporter.write(getName(), Integer.toString(i), buckets[i]);
         }
-        exporter.write(getName(), ">" + _buckets, histogramoverflow);
+        exporter.write(getName(), ">" + _buckets, (int) histogram.sum(_buckets));
     }
 
     @Override
     public String getSummary() {
+        long windowoperations = stats.sumThenReset(WINDOWOPERATIONS);
+        long windowtotallatency = stats.sumThenReset(WINDOWTOTALLATENCY);
         if (windowoperations == 0) {
             return "";
         }
         DecimalFormat d = new DecimalFormat("#.##");
         double report = ((double) windowtotallatency) / ((double) windowoperations);
-        windowtotallatency = 0;
-        windowoperations = 0;
         return "[" + getName() + " AverageLatency(us)=" + d.format(report) + "]";
     }
 }
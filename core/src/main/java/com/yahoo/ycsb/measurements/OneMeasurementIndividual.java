@@ -9,51 +9,71 @@ import br.ufc.lsbd.benchxtend.configuration.Sla;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import java.io.IOException;
 import java.text.DecimalFormat;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Properties;
-import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
+ * Measures each query against the timeline and the SLA: keeps the average
+ * response time of every second of the workload and computes the
+ * underprovisioning, overprovisioning and elasticitydb metrics.
+ *
+ * Queries are not kept one by one. The per second averages are kept as a sum
+ * and a count per second, and the response times go into a log-linear
+ * histogram (individual.significantdigits digits of precision) from which the
+ * percentiles and the metrics are computed, so memory depends on the length
+ * of the run and not on the number of queries.
  *
  * @author rodrigofelix
  */
 public class OneMeasurementIndividual extends OneMeasurement {
 
-    long totallatency;
-    int count = 0;
-    int min;
-    int max;
+    /**
+     * Number of significant decimal digits kept for each response time.
+     */
+    public static final String SIGNIFICANT_DIGITS = "individual.significantdigits";
+    public static final String SIGNIFICANT_DIGITS_DEFAULT = "3";
+    /**
+     * Highest response time (in us) that is tracked precisely.
+     */
+    public static final String MAX_LATENCY = "individual.max";
+    public static final String MAX_LATENCY_DEFAULT = "3600000000";
+    // the per second series is allocated in segments of this many seconds,
+    // up to MAX_SEGMENTS of them (about 12 days); later queries are counted
+    // in the last second
+    static final int SEGMENT_SECONDS = 1024;
+    static final int MAX_SEGMENTS = 1024;
+    // slots of the stats array
+    static final int COUNT = 0;
+    static final int TOTALLATENCY = 1;
     long workloadStartTime;
     Distribution distribution;
     Sla sla;
-    Vector<long[]> responseTimes;
-    private HashMap<Integer, int[]> returncodes;
+    LogLinearHistogram histogram;
+    StripedLongArray stats;
+    StripedLongArray min;
+    StripedLongArray max;
+    // each segment holds a (sum, count) pair per second
+    AtomicReferenceArray<AtomicLongArray> seconds;
+    ReturnCodes returncodes;
 
     public OneMeasurementIndividual(String name, Properties props, Sla sla, Distribution distribution, long workloadStartTime) {
         super(name);
         this.workloadStartTime = workloadStartTime;
         this.sla = sla;
         this.distribution = distribution;
-        totallatency = 0;
-        min = -1;
-        max = -1;
-        responseTimes = new Vector<long[]>();
-        returncodes = new HashMap<Integer, int[]>();
+        histogram = new LogLinearHistogram(Long.parseLong(props.getProperty(MAX_LATENCY, MAX_LATENCY_DEFAULT)),
+                Integer.parseInt(props.getProperty(SIGNIFICANT_DIGITS, SIGNIFICANT_DIGITS_DEFAULT)));
+        stats = new StripedLongArray(2);
+        min = new StripedLongArray(1, Long.MAX_VALUE);
+        max = new StripedLongArray(1, Long.MIN_VALUE);
+        seconds = new AtomicReferenceArray<AtomicLongArray>(MAX_SEGMENTS);
+        returncodes = new ReturnCodes();
     }
 
     @Override
     public void reportReturnCode(int code) {
-        Integer Icode = code;
-        if (!returncodes.containsKey(Icode)) {
-            int[] val = new int[1];
-            val[0] = 0;
-            returncodes.put(Icode, val);
-        }
-        returncodes.get(Icode)[0]++;
+        returncodes.report(code);
     }
 
     /**
@@ -66,22 +86,28 @@ public class OneMeasurementIndividual extends OneMeasurement {
      */
     @Override
     public void measure(long startTime, int latency) {
-        long[] values = new long[3];
-        values[0] = latency;
-        values[1] = (long) ((startTime - this.workloadStartTime) / 1000); // in microseconds
-
-        responseTimes.add(values);
-
-        count++;
-        totallatency += latency;
-
-        if (latency > max) {
-            max = latency;
-        }
-
-        if ((latency < min) || (min < 0)) {
-            min = latency;
+        // in microseconds
+        long offset = (startTime - this.workloadStartTime) / 1000;
+
+        // second n holds the queries started in (n - 1, n] seconds
+        long second = Math.max(1, (offset + 999999) / 1000000);
+        second = Math.min(second, (long) SEGMENT_SECONDS * MAX_SEGMENTS - 1);
+        int segment = (int) (second / SEGMENT_SECONDS);
+        int slot = (int) (second % SEGMENT_SECONDS);
+
+        AtomicLongArray sums = seconds.get(segment);
+        if (sums == null) {
+            seconds.compareAndSet(segment, null, new AtomicLongArray(2 * SEGMENT_SECONDS));
+            sums = seconds.get(segment);
         }
+        sums.getAndAdd(2 * slot, latency);
+        sums.getAndIncrement(2 * slot + 1);
+
+        histogram.record(latency);
+        stats.increment(COUNT);
+        stats.add(TOTALLATENCY, latency);
+        min.updateMin(0, latency);
+        max.updateMax(0, latency);
     }
 
     /**
@@ -102,120 +128,97 @@ public class OneMeasurementIndividual extends OneMeasurement {
     @Override
     public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
         DecimalFormat d = new DecimalFormat("#.##");
+        int count = (int) stats.sum(COUNT);
+        long totallatency = stats.sum(TOTALLATENCY);
 
         exporter.write(getName(), "Total Queries: ", count);
         exporter.write(getName(), "Total Latency: ", totallatency);
+        if (count == 0) {
+            return;
+        }
         exporter.write(getName(), "Average Latency (us): ", d.format(totallatency / count));
-        exporter.write(getName(), "Min Latency (us): ", d.format(min));
-        exporter.write(getName(), "Max Latency (us): ", d.format(max));
+        exporter.write(getName(), "Min Latency (us): ", d.format(min.min(0)));
+        exporter.write(getName(), "Max Latency (us): ", d.format(max.max(0)));
 
         // shows the number of successful (0) and failed (-1) queries by operation type
-        for (Integer I : returncodes.keySet()) {
-            int[] val = returncodes.get(I);
-            exporter.write(getName(), "Return=" + I, val[0]);
-        }
-
-        ArrayList<Float> underprovSet = new ArrayList<Float>();
-        ArrayList<Float> overprovSet = new ArrayList<Float>();
-        long expectedTime = sla.getTimeByType(getName());
+        returncodes.export(getName(), exporter);
 
-        for (int i = 0; i < responseTimes.size(); i++) {
-            // TODO: figure out why responseTimes.get(i) can be null
-            if (responseTimes.get(i) != null) {
-                exporter.write(getName(), "Query", responseTimes.get(i)[1] + ", " + responseTimes.get(i)[0]);
+        // average of response time for each second that had queries
+        for (int segment = 0; segment < MAX_SEGMENTS; segment++) {
+            AtomicLongArray sums = seconds.get(segment);
+            if (sums == null) {
+                continue;
             }
-        }
-
-        long current_second = 1;
-        int avg_counter = 0;
-        long sum = 0;
-        long latency;
-        long time;
-
-        // calculates average of response time for each second
-        for (int i = 0; i < responseTimes.size(); i++) {
-            // TODO: figure out why responseTimes.get(i) can be null
-            if (responseTimes.get(i) != null) {
-                time = responseTimes.get(i)[1];
-                latency = responseTimes.get(i)[0];
-                if ((time / 1000000f) > current_second) {
-                    exporter.write(getName(), "Average", current_second + "000000, " + ((avg_counter > 0) ? (sum / avg_counter) : 0));
-
-                    sum = latency;
-                    avg_counter = 1;
-
-                    do {
-                        current_second++;
-                    } while (current_second < (time / 1000000f));
-                } else {
-                    sum += latency;
-                    avg_counter++;
+            for (int slot = 0; slot < SEGMENT_SECONDS; slot++) {
+                long queries = sums.get(2 * slot + 1);
+                if (queries > 0) {
+                    long second = (long) segment * SEGMENT_SECONDS + slot;
+                    exporter.write(getName(), "Average", second + "000000, " + (sums.get(2 * slot) / queries));
                 }
             }
         }
 
-        // sorts the vector to calculate the percentile
-        Collections.sort(responseTimes, new Comparator<long[]>() {
-            @Override
-            public int compare(long[] x, long[] y) {
-                return (new Long(x[0])).compareTo(y[0]);
-            }
-        });
+        exportElasticity(exporter);
+    }
+
+    /**
+     * Computes the underprovisioning, overprovisioning and elasticitydb
+     * metrics. Every query counted in a bucket of the histogram is taken as
+     * having the response time in the middle of that bucket.
+     */
+    void exportElasticity(MeasurementsExporter exporter) throws IOException {
+        long expectedTime = sla.getTimeByType(getName());
+        long maxlatency = max.max(0);
 
         // ensures the percentiles provided in the timeline.xml are valid
-        float configUnderPercentile = ((distribution.elasticity.underprovPercentile >= 1.0) ? 0.95f : distribution.elasticity.underprovPercentile);
-        float configOverPercentile = ((distribution.elasticity.overprovPercentile <= 0.0) ? 0.05f : distribution.elasticity.overprovPercentile);
-
-        long underprovPercentile = responseTimes.get((int) Math.ceil(responseTimes.size() * configUnderPercentile) - 1)[0];
-        long overprovPercentile = responseTimes.get((int) Math.ceil(responseTimes.size() * configOverPercentile) - 1)[0];
-
-        for (int i = 0; i < responseTimes.size(); i++) {
-            // TODO: figure out why responseTimes.get(i) can be null
-            if (responseTimes.get(i) != null) {
-                if (responseTimes.get(i)[0] > expectedTime && responseTimes.get(i)[0] < underprovPercentile) {
-                    // calculates the rate violated / expected in an underprovisioning scenario
-                    underprovSet.add((float) responseTimes.get(i)[0] / expectedTime);
-                } else if (responseTimes.get(i)[0] < expectedTime - (distribution.elasticity.overprovisionLambda * expectedTime) && responseTimes.get(i)[0] > overprovPercentile) {
-                    // calculates the rate expected / violated in an overprovisioning scenario
-                    overprovSet.add((float) expectedTime / responseTimes.get(i)[0]);
-                }
+        float configUnderPercentile = ((distribution.elasticity.underprovPercentile >= 1.0 || distribution.elasticity.underprovPercentile <= 0.0) ? 0.95f : distribution.elasticity.underprovPercentile);
+        float configOverPercentile = ((distribution.elasticity.overprovPercentile <= 0.0 || distribution.elasticity.overprovPercentile >= 1.0) ? 0.05f : distribution.elasticity.overprovPercentile);
+
+        long[] counts = histogram.counts();
+        long[] percentiles = histogram.valuesAtPercentiles(counts, new double[]{configOverPercentile * 100.0, configUnderPercentile * 100.0});
+        long overprovPercentile = Math.min(percentiles[0], maxlatency);
+        long underprovPercentile = Math.min(percentiles[1], maxlatency);
+
+        double underprovTotal = 0;
+        long underprovQueries = 0;
+        double overprovTotal = 0;
+        long overprovQueries = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            long latency = Math.min(histogram.medianValueAt(i), maxlatency);
+            if (latency > expectedTime && latency < underprovPercentile) {
+                // calculates the rate violated / expected in an underprovisioning scenario
+                underprovTotal += counts[i] * ((double) latency / expectedTime);
+                underprovQueries += counts[i];
+            } else if (latency < expectedTime - (distribution.elasticity.overprovisionLambda * expectedTime) && latency > overprovPercentile) {
+                // calculates the rate expected / violated in an overprovisioning scenario
+                overprovTotal += counts[i] * ((double) expectedTime / latency);
+                overprovQueries += counts[i];
             }
         }
 
         float underprov = 0;
         float overprov = 0;
 
-        exporter.write(getName(), ((int)(configUnderPercentile * 100)) + "th Percentile: ", underprovPercentile);
-        if (underprovSet.size() > 0) {
-            float total = 0f;
-
-            // calculates the sum of rates
-            for (Float f : underprovSet) {
-                total += f;
-            }
-
+        exporter.write(getName(), ((int) (configUnderPercentile * 100)) + "th Percentile: ", underprovPercentile);
+        if (underprovQueries > 0) {
             // calculates actually underprov metric, ie. the arithmetic average of rates
-            underprov = (total / (float) underprovSet.size());
+            underprov = (float) (underprovTotal / underprovQueries);
             exporter.write(getName(), "Underprov: ", underprov);
-            exporter.write(getName(), "Total of underprov queries: ", underprovSet.size());
+            exporter.write(getName(), "Total of underprov queries: ", (int) underprovQueries);
         } else {
             exporter.write(getName(), "Underprov: ", 0);
             exporter.write(getName(), "Total of underprov queries: ", 0);
         }
 
-        exporter.write(getName(), ((int)(configOverPercentile * 100)) + "th Percentile: ", overprovPercentile);
-        if (overprovSet.size() > 0) {
-            float total = 0f;
-
-            // calculates the sum of rates
-            for (Float f : overprovSet) {
-                total += f;
-            }
-
-            // calculates actually underprov metric, ie. the arithmetic average of rates
-            overprov = total / (float) overprovSet.size();
+        exporter.write(getName(), ((int) (configOverPercentile * 100)) + "th Percentile: ", overprovPercentile);
+        if (overprovQueries > 0) {
+            // calculates actually overprov metric, ie. the arithmetic average of rates
+            overprov = (float) (overprovTotal / overprovQueries);
             exporter.write(getName(), "Overprov metric: ", overprov);
-            exporter.write(getName(), "Total of overprov queries: ", overprovSet.size());
+            exporter.write(getName(), "Total of overprov queries: ", (int) overprovQueries);
         } else {
             exporter.write(getName(), "Overprov metric: ", 0);
             exporter.write(getName(), "Total of overprov queries: ", 0);
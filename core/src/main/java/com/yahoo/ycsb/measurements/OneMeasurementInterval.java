@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.Properties;
+
+/**
+ * Wraps the measurement of an operation to report, in the status line and on
+ * the metrics endpoint, the latency percentiles of the last interval and not
+ * only its average. Everything else is left to the wrapped measurement.
+ *
+ * Latencies go into one of two interval histograms. rollInterval() makes the
+ * other one current and reads the one that was filled, so the client threads
+ * never wait for the reader. An operation that picked the histogram just
+ * before the swap and records into it after it was read is not lost; it is
+ * reported with a later interval. The result is kept until the next roll, so
+ * it can be read any number of times without locking.
+ */
+public class OneMeasurementInterval extends OneMeasurement {
+
+    /**
+     * Comma separated list of the percentiles shown in the status line and on
+     * the metrics endpoint, in ascending order.
+     */
+    public static final String PERCENTILES = "status.percentiles";
+    public static final String PERCENTILES_DEFAULT = "50,95,99";
+    // slots of the stats array of an interval
+    static final int OPERATIONS = 0;
+    static final int TOTALLATENCY = 1;
+    OneMeasurement measurement;
+    String[] percentilenames;
+    double[] percentiles;
+    Interval[] intervals;
+    volatile int current;
+    volatile Snapshot last;
+
+    /**
+     * The statistics of a finished interval.
+     */
+    public static class Snapshot {
+
+        public final long operations;
+        public final long totallatency;
+        public final long maxlatency;
+        /**
+         * latency at each of the percentiles, in the order of getPercentiles()
+         */
+        public final long[] values;
+
+        Snapshot(long operations, long totallatency, long maxlatency, long[] values) {
+            this.operations = operations;
+            this.totallatency = totallatency;
+            this.maxlatency = maxlatency;
+            this.values = values;
+        }
+    }
+
+    /**
+     * The latencies of one interval.
+     */
+    static class Interval {
+
+        LogLinearHistogram histogram;
+        StripedLongArray stats;
+        StripedLongArray max;
+
+        Interval(Properties props) {
+            histogram = new LogLinearHistogram(Long.parseLong(props.getProperty(OneMeasurementHdrHistogram.MAX_LATENCY, OneMeasurementHdrHistogram.MAX_LATENCY_DEFAULT)),
+                    Integer.parseInt(props.getProperty(OneMeasurementHdrHistogram.SIGNIFICANT_DIGITS, OneMeasurementHdrHistogram.SIGNIFICANT_DIGITS_DEFAULT)));
+            stats = new StripedLongArray(2);
+            max = new StripedLongArray(1, Long.MIN_VALUE);
+        }
+
+        void measure(int latency) {
+            histogram.record(latency);
+            stats.increment(OPERATIONS);
+            stats.add(TOTALLATENCY, latency);
+            max.updateMax(0, latency);
+        }
+    }
+
+    public OneMeasurementInterval(OneMeasurement measurement, Properties props) {
+        super(measurement.getName());
+        this.measurement = measurement;
+        percentilenames = props.getProperty(PERCENTILES, PERCENTILES_DEFAULT).split(",");
+        percentiles = new double[percentilenames.length];
+        for (int i = 0; i < percentilenames.length; i++) {
+            percentilenames[i] = percentilenames[i].trim();
+            percentiles[i] = Double.parseDouble(percentilenames[i]);
+        }
+        intervals = new Interval[]{new Interval(props), new Interval(props)};
+        last = new Snapshot(0, 0, 0, new long[percentiles.length]);
+    }
+
+    public double[] getPercentiles() {
+        return percentiles;
+    }
+
+    @Override
+    public void reportReturnCode(int code) {
+        measurement.reportReturnCode(code);
+    }
+
+    @Override
+    public void measure(int latency) {
+        measurement.measure(latency);
+        intervals[current].measure(latency);
+    }
+
+    @Override
+    public void measure(long startTime, int latency) {
+        measurement.measure(startTime, latency);
+        intervals[current].measure(latency);
+    }
+
+    @Override
+    public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+        measurement.exportMeasurements(exporter);
+    }
+
+    /**
+     * End the current interval and return its statistics, which are also kept
+     * as the last interval. Only one thread is meant to roll the intervals.
+     */
+    public synchronized Snapshot rollInterval() {
+        Interval interval = intervals[current];
+        current = 1 - current;
+
+        long operations = interval.stats.sumThenReset(OPERATIONS);
+        long totallatency = interval.stats.sumThenReset(TOTALLATENCY);
+        long maxlatency = interval.max.maxThenReset(0);
+        long[] values = interval.histogram.valuesAtPercentiles(interval.histogram.countsThenReset(), percentiles);
+        if (operations == 0) {
+            maxlatency = 0;
+        }
+        for (int i = 0; i < values.length; i++) {
+            // a bucket may reach past the largest latency actually seen
+            values[i] = Math.min(values[i], maxlatency);
+        }
+        last = new Snapshot(operations, totallatency, maxlatency, values);
+        return last;
+    }
+
+    /**
+     * The statistics of the last interval ended by rollInterval().
+     */
+    public Snapshot getLastInterval() {
+        return last;
+    }
+
+    /**
+     * Average, percentiles and maximum of the latencies measured since the
+     * previous call. Ends the current interval.
+     */
+    @Override
+    public String getSummary() {
+        Snapshot interval = rollInterval();
+        if (interval.operations == 0) {
+            return "";
+        }
+
+        DecimalFormat d = new DecimalFormat("#.##");
+        StringBuilder summary = new StringBuilder();
+        summary.append("[").append(getName());
+        summary.append(" AverageLatency(us)=").append(d.format(((double) interval.totallatency) / ((double) interval.operations)));
+        for (int i = 0; i < percentiles.length; i++) {
+            summary.append(" ").append(percentilenames[i]).append("thPercentileLatency(us)=").append(interval.values[i]);
+        }
+        summary.append(" MaxLatency(us)=").append(interval.maxlatency).append("]");
+        return summary.toString();
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import br.ufc.lsbd.benchxtend.configuration.Distribution;
+import br.ufc.lsbd.benchxtend.configuration.Sla;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Write every single operation of a given metric, such as READ LATENCY, to a
+ * RawLatencyLog instead of keeping it in memory. When exporting, the log is
+ * read back and summarized the same way RawLatencyLogReader does.
+ */
+public class OneMeasurementRaw extends OneMeasurement {
+
+    RawLatencyLog log;
+    short operation;
+    Properties props;
+    Sla sla;
+    Distribution distribution;
+
+    /**
+     * @param sla if this and the distribution are not null, the summary
+     * includes the elasticity metrics of the individual measurement
+     */
+    public OneMeasurementRaw(String name, Properties props, RawLatencyLog log, Sla sla, Distribution distribution) {
+        super(name);
+        this.log = log;
+        this.operation = log.operation(name);
+        this.props = props;
+        this.sla = sla;
+        this.distribution = distribution;
+    }
+
+    @Override
+    public void reportReturnCode(int code) {
+        log.setReturnCode(operation, code);
+    }
+
+    /**
+     * considers the operation as having just finished
+     */
+    @Override
+    public void measure(int latency) {
+        measure(System.nanoTime() - latency * 1000L, latency);
+    }
+
+    @Override
+    public void measure(long startTime, int latency) {
+        log.append(operation, startTime, latency);
+    }
+
+    @Override
+    public String getSummary() {
+        return "";
+    }
+
+    @Override
+    public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+        exporter.write(getName(), "RawLog", log.getDirectory().getPath());
+        OneMeasurement summary = log.summary(getName(), props, sla, distribution);
+        if (summary != null) {
+            summary.exportMeasurements(exporter);
+        }
+    }
+}
@@ -17,7 +17,6 @@ package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
 import java.text.DecimalFormat;
-import java.util.HashMap;
 import java.util.Properties;
 import java.util.Vector;
 
@@ -38,7 +37,9 @@ class SeriesUnit {
 }
 
 /**
- * A time series measurement of a metric, such as READ LATENCY.
+ * A time series measurement of a metric, such as READ LATENCY. Unlike
+ * OneMeasurementHistogram, this keeps a single set of running totals guarded by
+ * the monitor of this object.
  */
 public class OneMeasurementTimeSeries extends OneMeasurement {
 
@@ -61,13 +62,13 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
     long windowtotallatency = 0;
     int min = -1;
     int max = -1;
-    private HashMap<Integer, int[]> returncodes;
+    private ReturnCodes returncodes;
 
     public OneMeasurementTimeSeries(String name, Properties props) {
         super(name);
         _granularity = Integer.parseInt(props.getProperty(GRANULARITY, GRANULARITY_DEFAULT));
         _measurements = new Vector<SeriesUnit>();
-        returncodes = new HashMap<Integer, int[]>();
+        returncodes = new ReturnCodes();
     }
 
     void checkEndOfUnit(boolean forceend) {
@@ -92,7 +93,7 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
     }
 
     @Override
-    public void measure(int latency) {
+    public synchronized void measure(int latency) {
         checkEndOfUnit(false);
 
         count++;
@@ -118,7 +119,7 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
     }
 
     @Override
-    public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException {
         checkEndOfUnit(true);
 
         exporter.write(getName(), "Operations", operations);
@@ -128,10 +129,7 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
 
         //TODO: 95th and 99th percentile latency
 
-        for (Integer I : returncodes.keySet()) {
-            int[] val = returncodes.get(I);
-            exporter.write(getName(), "Return=" + I, val[0]);
-        }
+        returncodes.export(getName(), exporter);
 
         for (SeriesUnit unit : _measurements) {
             exporter.write(getName(), Long.toString(unit.time), unit.average);
@@ -140,18 +138,11 @@ public class OneMeasurementTimeSeries extends OneMeasurement {
 
     @Override
     public void reportReturnCode(int code) {
-        Integer Icode = code;
-        if (!returncodes.containsKey(Icode)) {
-            int[] val = new int[1];
-            val[0] = 0;
-            returncodes.put(Icode, val);
-        }
-        returncodes.get(Icode)[0]++;
-
+        returncodes.report(code);
     }
 
     @Override
-    public String getSummary() {
+    public synchronized String getSummary() {
         if (windowoperations == 0) {
             return "";
         }
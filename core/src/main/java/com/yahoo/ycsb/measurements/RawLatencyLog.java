@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import br.ufc.lsbd.benchxtend.configuration.Distribution;
+import br.ufc.lsbd.benchxtend.configuration.Sla;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Streams every measured operation to disk. Each client thread writes its own
+ * memory-mapped segment files, so recording an operation is a handful of
+ * stores into the mapped buffer, with no locking and no garbage.
+ *
+ * A segment is a fixed size file holding up to raw.segmentrecords operations,
+ * stored column by column after a 64 byte header:
+ * <pre>
+ *   header    magic, version, capacity, count, thread id, segment number
+ *   operation short[capacity]  index into the operations file
+ *   start     long[capacity]   start of the operation, in us since the workload started
+ *   latency   int[capacity]    in us
+ *   return    int[capacity]    return code, or NO_RETURN_CODE if none was reported
+ * </pre>
+ * All values are big endian. The names of the operations are written, one per
+ * line in index order, to the "operations" file of the same directory when the
+ * log is closed. RawLatencyLogReader reads the files back.
+ */
+public class RawLatencyLog {
+
+    /**
+     * Directory the segment files are written to. It must not already hold
+     * segment files.
+     */
+    public static final String DIRECTORY = "raw.dir";
+    public static final String DIRECTORY_DEFAULT = "raw";
+    /**
+     * Number of operations in each segment file.
+     */
+    public static final String SEGMENT_RECORDS = "raw.segmentrecords";
+    public static final String SEGMENT_RECORDS_DEFAULT = "1048576";
+    public static final String SEGMENT_SUFFIX = ".ycsbraw";
+    public static final String OPERATIONS_FILE = "operations";
+    public static final int MAGIC = 0x59524157;
+    public static final int VERSION = 1;
+    public static final int NO_RETURN_CODE = Integer.MIN_VALUE;
+    // header layout
+    static final int HEADER_SIZE = 64;
+    static final int HEADER_MAGIC = 0;
+    static final int HEADER_VERSION = 4;
+    static final int HEADER_CAPACITY = 8;
+    static final int HEADER_COUNT = 12;
+    static final int HEADER_THREAD = 16;
+    static final int HEADER_SEGMENT = 24;
+    File _directory;
+    int _capacity;
+    long _starttime;
+    ConcurrentHashMap<String, Short> _operations;
+    Vector<String> _operationnames;
+    ConcurrentLinkedQueue<Writer> _writers;
+    ThreadLocal<Writer> _writer;
+    boolean _closed;
+    TreeMap<String, OneMeasurement> _summaries;
+
+    /**
+     * @param props properties of the run
+     * @param starttime System.nanoTime() when the workload started; start
+     * times are stored relative to it
+     * @throws IOException if the directory can not be created or already
+     * holds segment files
+     */
+    public RawLatencyLog(Properties props, long starttime) throws IOException {
+        _directory = new File(props.getProperty(DIRECTORY, DIRECTORY_DEFAULT));
+        _capacity = Integer.parseInt(props.getProperty(SEGMENT_RECORDS, SEGMENT_RECORDS_DEFAULT));
+        _starttime = starttime;
+        _operations = new ConcurrentHashMap<String, Short>();
+        _operationnames = new Vector<String>();
+        _writers = new ConcurrentLinkedQueue<Writer>();
+        _writer = new ThreadLocal<Writer>();
+
+        if (!_directory.isDirectory() && !_directory.mkdirs()) {
+            throw new IOException("Could not create directory " + _directory);
+        }
+        if (RawLatencyLogReader.segments(_directory).length > 0) {
+            throw new IOException("Directory " + _directory + " already holds raw latency segments");
+        }
+    }
+
+    public File getDirectory() {
+        return _directory;
+    }
+
+    /**
+     * Return the index of an operation, assigning the next free one the first
+     * time the operation is seen.
+     */
+    public synchronized short operation(String name) {
+        Short index = _operations.get(name);
+        if (index == null) {
+            index = (short) _operationnames.size();
+            _operationnames.add(name);
+            _operations.put(name, index);
+        }
+        return index;
+    }
+
+    Writer writer() throws IOException {
+        Writer w = _writer.get();
+        if (w == null) {
+            w = new Writer(Thread.currentThread().getId());
+            _writer.set(w);
+            _writers.add(w);
+        }
+        return w;
+    }
+
+    /**
+     * Append one operation to the segment of the calling thread.
+     *
+     * @param operation index returned by operation()
+     * @param starttime System.nanoTime() when the operation started
+     * @param latency in us
+     */
+    public void append(short operation, long starttime, int latency) {
+        try {
+            writer().append(operation, (starttime - _starttime) / 1000, latency);
+        } catch (IOException e) {
+            System.out.println("ERROR: could not write raw latency segment - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Set the return code of the last operation of the given type appended by
+     * the calling thread, if its return code was not set yet.
+     */
+    public void setReturnCode(short operation, int code) {
+        Writer w = _writer.get();
+        if (w != null) {
+            w.setReturnCode(operation, code);
+        }
+    }
+
+    /**
+     * Flush and close all the segments and write the operations file. Must only
+     * be called once the client threads are done.
+     */
+    public synchronized void close() throws IOException {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        for (Writer w : _writers) {
+            w.close();
+        }
+        FileWriter out = new FileWriter(new File(_directory, OPERATIONS_FILE));
+        try {
+            for (String name : _operationnames) {
+                out.write(name);
+                out.write('\n');
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Close the log and return the summary of one operation, computed by
+     * reading back all the segments (only once, for all operations).
+     *
+     * @see RawLatencyLogReader#summarize
+     */
+    public synchronized OneMeasurement summary(String operation, Properties props, Sla sla, Distribution distribution) throws IOException {
+        close();
+        if (_summaries == null) {
+            _summaries = RawLatencyLogReader.summarize(_directory, props, sla, distribution);
+        }
+        return _summaries.get(operation);
+    }
+
+    /**
+     * The segments of one client thread. Only used by that thread until the
+     * log is closed.
+     */
+    class Writer {
+
+        long _threadid;
+        int _segment = -1;
+        RandomAccessFile _file;
+        MappedByteBuffer _buffer;
+        int _count;
+        // record of the last operation of each type in the current segment
+        // whose return code was not set yet, or -1
+        int[] _lastrecord = new int[0];
+        // column offsets in the current segment
+        int _startcolumn;
+        int _latencycolumn;
+        int _returncolumn;
+
+        Writer(long threadid) throws IOException {
+            _threadid = threadid;
+            _startcolumn = HEADER_SIZE + 2 * _capacity;
+            _latencycolumn = _startcolumn + 8 * _capacity;
+            _returncolumn = _latencycolumn + 4 * _capacity;
+            nextSegment();
+        }
+
+        void nextSegment() throws IOException {
+            close();
+            _segment++;
+            File f = new File(_directory, "thread-" + _threadid + "-" + _segment + SEGMENT_SUFFIX);
+            _file = new RandomAccessFile(f, "rw");
+            _buffer = _file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, _returncolumn + 4L * _capacity);
+            _buffer.putInt(HEADER_MAGIC, MAGIC);
+            _buffer.putInt(HEADER_VERSION, VERSION);
+            _buffer.putInt(HEADER_CAPACITY, _capacity);
+            _buffer.putInt(HEADER_COUNT, 0);
+            _buffer.putLong(HEADER_THREAD, _threadid);
+            _buffer.putInt(HEADER_SEGMENT, _segment);
+            _count = 0;
+            Arrays.fill(_lastrecord, -1);
+        }
+
+        void append(short operation, long start, int latency) throws IOException {
+            if (_count == _capacity) {
+                nextSegment();
+            }
+            _buffer.putShort(HEADER_SIZE + 2 * _count, operation);
+            _buffer.putLong(_startcolumn + 8 * _count, start);
+            _buffer.putInt(_latencycolumn + 4 * _count, latency);
+            _buffer.putInt(_returncolumn + 4 * _count, NO_RETURN_CODE);
+            _count++;
+            _buffer.putInt(HEADER_COUNT, _count);
+            if (operation >= _lastrecord.length) {
+                int length = _lastrecord.length;
+                _lastrecord = Arrays.copyOf(_lastrecord, Math.max(operation + 1, 2 * length));
+                Arrays.fill(_lastrecord, length, _lastrecord.length, -1);
+            }
+            _lastrecord[operation] = _count - 1;
+        }
+
+        void setReturnCode(short operation, int code) {
+            if (operation < _lastrecord.length && _lastrecord[operation] != -1) {
+                _buffer.putInt(_returncolumn + 4 * _lastrecord[operation], code);
+                _lastrecord[operation] = -1;
+            }
+        }
+
+        void close() throws IOException {
+            if (_file != null) {
+                _buffer.force();
+                _file.close();
+                _file = null;
+            }
+        }
+    }
+}
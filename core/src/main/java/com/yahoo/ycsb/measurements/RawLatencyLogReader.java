@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import br.ufc.lsbd.benchxtend.configuration.Distribution;
+import br.ufc.lsbd.benchxtend.configuration.Sla;
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.xml.DomDriver;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.Vector;
+
+/**
+ * Reads the segment files written by RawLatencyLog and computes the same
+ * summaries the other measurement types report: an hdrhistogram summary per
+ * operation or, when an SLA and a timeline are given, the individual
+ * measurement summary with the elasticity metrics.
+ *
+ * With -dump, every operation is printed instead, one per line, as
+ * "operation, start (us), latency (us), return code".
+ *
+ * Usage: RawLatencyLogReader directory [-dump] [-sla xmlfile -timeline
+ * xmlfile] [-p name=value]...
+ */
+public class RawLatencyLogReader {
+
+    /**
+     * Receives the operations read from the segments.
+     */
+    public interface Handler {
+
+        /**
+         * @param operation name of the operation
+         * @param start start of the operation, in us since the workload started
+         * @param latency in us
+         * @param code return code, or RawLatencyLog.NO_RETURN_CODE
+         */
+        void operation(String operation, long start, int latency, int code);
+    }
+
+    static File[] segments(File directory) {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(RawLatencyLog.SEGMENT_SUFFIX);
+            }
+        });
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    static String[] operations(File directory) throws IOException {
+        Vector<String> names = new Vector<String>();
+        BufferedReader in = new BufferedReader(new FileReader(new File(directory, RawLatencyLog.OPERATIONS_FILE)));
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                names.add(line);
+            }
+        } finally {
+            in.close();
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * Pass every operation stored in the directory to the handler, segment by
+     * segment.
+     */
+    public static void read(File directory, Handler handler) throws IOException {
+        String[] names = operations(directory);
+        for (File segment : segments(directory)) {
+            RandomAccessFile file = new RandomAccessFile(segment, "r");
+            try {
+                MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+                if (buffer.getInt(RawLatencyLog.HEADER_MAGIC) != RawLatencyLog.MAGIC) {
+                    throw new IOException(segment + " is not a raw latency segment");
+                }
+                if (buffer.getInt(RawLatencyLog.HEADER_VERSION) != RawLatencyLog.VERSION) {
+                    throw new IOException(segment + " has unsupported version " + buffer.getInt(RawLatencyLog.HEADER_VERSION));
+                }
+                int capacity = buffer.getInt(RawLatencyLog.HEADER_CAPACITY);
+                int count = buffer.getInt(RawLatencyLog.HEADER_COUNT);
+                int startcolumn = RawLatencyLog.HEADER_SIZE + 2 * capacity;
+                int latencycolumn = startcolumn + 8 * capacity;
+                int returncolumn = latencycolumn + 4 * capacity;
+                for (int i = 0; i < count; i++) {
+                    handler.operation(names[buffer.getShort(RawLatencyLog.HEADER_SIZE + 2 * i)],
+                            buffer.getLong(startcolumn + 8 * i),
+                            buffer.getInt(latencycolumn + 4 * i),
+                            buffer.getInt(returncolumn + 4 * i));
+                }
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    /**
+     * Build one summary measurement per operation stored in the directory.
+     *
+     * @param sla if this and the distribution are not null, individual
+     * measurements are built, otherwise hdrhistogram ones
+     */
+    public static TreeMap<String, OneMeasurement> summarize(File directory, final Properties props, final Sla sla, final Distribution distribution) throws IOException {
+        final TreeMap<String, OneMeasurement> summaries = new TreeMap<String, OneMeasurement>();
+        read(directory, new Handler() {
+            @Override
+            public void operation(String operation, long start, int latency, int code) {
+                OneMeasurement m = summaries.get(operation);
+                if (m == null) {
+                    if (sla != null && distribution != null) {
+                        m = new OneMeasurementIndividual(operation, props, sla, distribution, 0);
+                    } else {
+                        m = new OneMeasurementHdrHistogram(operation, props);
+                    }
+                    summaries.put(operation, m);
+                }
+                m.measure(start * 1000, latency);
+                if (code != RawLatencyLog.NO_RETURN_CODE) {
+                    m.reportReturnCode(code);
+                }
+            }
+        });
+        return summaries;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java com.yahoo.ycsb.measurements.RawLatencyLogReader directory [-dump] [-sla xmlfile -timeline xmlfile] [-p name=value]...");
+            System.exit(0);
+        }
+
+        File directory = new File(args[0]);
+        Properties props = new Properties();
+        Sla sla = null;
+        Distribution distribution = null;
+        boolean dump = false;
+        int argindex = 1;
+        while (argindex < args.length) {
+            if (args[argindex].equals("-dump")) {
+                dump = true;
+                argindex++;
+                continue;
+            }
+            if (argindex + 1 >= args.length) {
+                System.out.println("Missing value for option " + args[argindex]);
+                System.exit(0);
+            }
+            String value = args[argindex + 1];
+            if (args[argindex].equals("-sla")) {
+                XStream xstream = new XStream(new DomDriver());
+                xstream.processAnnotations(Sla.class);
+                sla = (Sla) xstream.fromXML(new FileInputStream(new File(value)));
+            } else if (args[argindex].equals("-timeline")) {
+                XStream xstream = new XStream(new DomDriver());
+                xstream.processAnnotations(Distribution.class);
+                distribution = (Distribution) xstream.fromXML(new FileInputStream(new File(value)));
+            } else if (args[argindex].equals("-p")) {
+                int eq = value.indexOf('=');
+                props.setProperty(value.substring(0, eq), value.substring(eq + 1));
+            } else {
+                System.out.println("Unknown option " + args[argindex]);
+                System.exit(0);
+            }
+            argindex += 2;
+        }
+
+        if (dump) {
+            final BufferedWriter out = new BufferedWriter(new OutputStreamWriter(System.out));
+            read(directory, new Handler() {
+                @Override
+                public void operation(String operation, long start, int latency, int code) {
+                    try {
+                        out.write(operation + ", " + start + ", " + latency + ", " + ((code == RawLatencyLog.NO_RETURN_CODE) ? "" : Integer.toString(code)));
+                        out.newLine();
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            out.close();
+            return;
+        }
+
+        MeasurementsExporter exporter = new TextMeasurementsExporter(System.out);
+        try {
+            for (OneMeasurement m : summarize(directory, props, sla, distribution).values()) {
+                m.exportMeasurements(exporter);
+            }
+        } finally {
+            exporter.close();
+        }
+    }
+}
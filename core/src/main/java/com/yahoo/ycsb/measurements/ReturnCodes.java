@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the return codes of one operation. The usual codes, from MIN_CODE to
+ * MAX_CODE, are counted in a StripedLongArray, so reporting one is an array
+ * index with no boxing or hashing; any other code is counted in a map.
+ */
+class ReturnCodes {
+
+    static final int MIN_CODE = -32;
+    static final int MAX_CODE = 31;
+    private final StripedLongArray _counts = new StripedLongArray(MAX_CODE - MIN_CODE + 1);
+    private final ConcurrentHashMap<Integer, AtomicLong> _others = new ConcurrentHashMap<Integer, AtomicLong>();
+
+    void report(int code) {
+        if (code >= MIN_CODE && code <= MAX_CODE) {
+            _counts.increment(code - MIN_CODE);
+            return;
+        }
+        AtomicLong counter = _others.get(code);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = _others.putIfAbsent(code, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    /**
+     * The codes reported at least once, in ascending order, with their count.
+     */
+    TreeMap<Integer, Long> counts() {
+        TreeMap<Integer, Long> counts = new TreeMap<Integer, Long>();
+        for (int i = 0; i < _counts.length(); i++) {
+            long count = _counts.sum(i);
+            if (count > 0) {
+                counts.put(i + MIN_CODE, count);
+            }
+        }
+        for (Map.Entry<Integer, AtomicLong> e : _others.entrySet()) {
+            counts.put(e.getKey(), e.getValue().get());
+        }
+        return counts;
+    }
+
+    /**
+     * Write a "Return=code" measurement for each code reported.
+     */
+    void export(String metric, MeasurementsExporter exporter) throws IOException {
+        for (Map.Entry<Integer, Long> e : counts().entrySet()) {
+            exporter.write(metric, "Return=" + e.getKey(), e.getValue().intValue());
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.measurements;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size array of long values that can be updated by many threads at the
+ * same time without locking. Each thread writes into its own stripe (chosen
+ * from the thread id), so that client threads do not fight over the same cache
+ * lines. The stripes are only combined when the values are read, which is
+ * expected to happen rarely (status lines and the final export).
+ */
+class StripedLongArray {
+
+    /**
+     * Number of longs added after each stripe, so that two stripes never share
+     * a cache line.
+     */
+    private static final int PADDING = 16;
+    /**
+     * Default number of stripes. Always a power of two.
+     */
+    static final int STRIPES = stripeCount();
+    private final int _stripes;
+    private final int _length;
+    private final int _stride;
+    private final long _initial;
+    private final AtomicLongArray _values;
+
+    /**
+     * @param length number of values in the array
+     */
+    StripedLongArray(int length) {
+        this(length, 0);
+    }
+
+    /**
+     * @param length number of values in the array
+     * @param initial value every slot of every stripe starts with, e.g.
+     * Long.MAX_VALUE for an array used with updateMin()
+     */
+    StripedLongArray(int length, long initial) {
+        this(length, initial, STRIPES);
+    }
+
+    /**
+     * @param length number of values in the array
+     * @param initial value every slot of every stripe starts with
+     * @param stripes number of stripes, a power of two no larger than STRIPES
+     */
+    StripedLongArray(int length, long initial, int stripes) {
+        if (stripes < 1 || (stripes & (stripes - 1)) != 0) {
+            throw new IllegalArgumentException("the number of stripes must be a power of two, got " + stripes);
+        }
+        _stripes = stripes;
+        _length = length;
+        _stride = length + PADDING;
+        _initial = initial;
+        _values = new AtomicLongArray(_stripes * _stride);
+        if (initial != 0) {
+            for (int i = 0; i < _values.length(); i++) {
+                _values.set(i, initial);
+            }
+        }
+    }
+
+    static int stripeCount() {
+        int wanted = Runtime.getRuntime().availableProcessors() * 2;
+        int stripes = 1;
+        while (stripes < wanted && stripes < 64) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+
+    int length() {
+        return _length;
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= _length) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        int stripe = (int) (Thread.currentThread().getId() & (_stripes - 1));
+        return stripe * _stride + index;
+    }
+
+    void increment(int index) {
+        _values.getAndIncrement(offset(index));
+    }
+
+    void add(int index, long delta) {
+        _values.getAndAdd(offset(index), delta);
+    }
+
+    void updateMin(int index, long value) {
+        int i = offset(index);
+        long current;
+        while (value < (current = _values.get(i))) {
+            if (_values.compareAndSet(i, current, value)) {
+                return;
+            }
+        }
+    }
+
+    void updateMax(int index, long value) {
+        int i = offset(index);
+        long current;
+        while (value > (current = _values.get(i))) {
+            if (_values.compareAndSet(i, current, value)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sum of the value at index over all stripes.
+     */
+    long sum(int index) {
+        long sum = 0;
+        for (int s = 0; s < _stripes; s++) {
+            sum += _values.get(s * _stride + index);
+        }
+        return sum;
+    }
+
+    /**
+     * Sum of the value at index over all stripes, resetting each stripe as it
+     * is read. Updates made concurrently are never lost, they just end up
+     * counted in the next call.
+     */
+    long sumThenReset(int index) {
+        long sum = 0;
+        for (int s = 0; s < _stripes; s++) {
+            sum += _values.getAndSet(s * _stride + index, _initial);
+        }
+        return sum;
+    }
+
+    /**
+     * Largest value at index over all stripes, resetting each stripe as it is
+     * read, like sumThenReset().
+     */
+    long maxThenReset(int index) {
+        long max = Long.MIN_VALUE;
+        for (int s = 0; s < _stripes; s++) {
+            max = Math.max(max, _values.getAndSet(s * _stride + index, _initial));
+        }
+        return max;
+    }
+
+    /**
+     * Smallest value at index over all stripes.
+     */
+    long min(int index) {
+        long min = Long.MAX_VALUE;
+        for (int s = 0; s < _stripes; s++) {
+            min = Math.min(min, _values.get(s * _stride + index));
+        }
+        return min;
+    }
+
+    /**
+     * Largest value at index over all stripes.
+     */
+    long max(int index) {
+        long max = Long.MIN_VALUE;
+        for (int s = 0; s < _stripes; s++) {
+            max = Math.max(max, _values.get(s * _stride + index));
+        }
+        return max;
+    }
+}
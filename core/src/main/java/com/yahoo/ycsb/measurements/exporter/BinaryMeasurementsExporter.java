@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.measurements.exporter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Write the measurements in a compact binary format, for runs whose text or
+ * JSON results get too large to write and parse quickly (e.g. histograms with
+ * many buckets). BinaryMeasurementsReader converts the files back to text or
+ * JSON.
+ *
+ * The file starts with a header: the int MAGIC, the byte VERSION and the
+ * compression byte (COMPRESSION_NONE or COMPRESSION_GZIP), which applies to
+ * the rest of the file. Then come the records, each one a tag byte followed by:
+ * <ul>
+ * <li>the metric, unless the tag has SAME_METRIC set, i.e. it is the metric of
+ * the previous record;
+ * <li>the measurement. If the tag has NUMERIC_MEASUREMENT set, it is an
+ * integer written as the difference with the previous numeric measurement of
+ * the same metric, which makes histogram buckets and time series points one
+ * or two bytes each;
+ * <li>the value, whose type is in the low bits of the tag.
+ * </ul>
+ * Metrics and measurements are written once: a name is a varint n, with 0
+ * meaning that a new name follows (varint length and UTF-8 bytes) and gets
+ * the next index, and any other value referring to the name of index n - 1.
+ * Ints and longs are written as zigzag varints. The records end with the
+ * END tag.
+ */
+public class BinaryMeasurementsExporter implements MeasurementsExporter {
+
+    /**
+     * Compression of the records: "none" or "gzip".
+     */
+    public static final String COMPRESSION = "binaryexporter.compression";
+    public static final String COMPRESSION_DEFAULT = "gzip";
+    public static final int MAGIC = 0x5943534D;
+    public static final int VERSION = 1;
+    public static final int COMPRESSION_NONE = 0;
+    public static final int COMPRESSION_GZIP = 1;
+    // record tags
+    static final int TYPE_INT = 0;
+    static final int TYPE_DOUBLE = 1;
+    static final int TYPE_STRING = 2;
+    static final int TYPE_MASK = 0x03;
+    static final int SAME_METRIC = 0x04;
+    static final int NUMERIC_MEASUREMENT = 0x08;
+    static final int END = 0xFF;
+    private DataOutputStream out;
+    private HashMap<String, Integer> names = new HashMap<String, Integer>();
+    private String lastmetric;
+    private long lastnumeric;
+
+    public BinaryMeasurementsExporter(OutputStream os) throws IOException {
+        this(os, new Properties());
+    }
+
+    public BinaryMeasurementsExporter(OutputStream os, Properties props) throws IOException {
+        // checked before anything is written, so that another exporter can
+        // still be used on the same stream
+        String compression = props.getProperty(COMPRESSION, COMPRESSION_DEFAULT);
+        if (!compression.equals("gzip") && !compression.equals("none")) {
+            throw new IllegalArgumentException("Unknown " + COMPRESSION + " " + compression);
+        }
+        DataOutputStream header = new DataOutputStream(os);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        if (compression.equals("gzip")) {
+            header.writeByte(COMPRESSION_GZIP);
+            os = new GZIPOutputStream(os, 65536);
+        } else {
+            header.writeByte(COMPRESSION_NONE);
+        }
+        header.flush();
+        out = new DataOutputStream(new BufferedOutputStream(os, 65536));
+    }
+
+    @Override
+    public void write(String metric, String measurement, int i) throws IOException {
+        writeNames(TYPE_INT, metric, measurement);
+        writeVarLong(i);
+    }
+
+    @Override
+    public void write(String metric, String measurement, double d) throws IOException {
+        writeNames(TYPE_DOUBLE, metric, measurement);
+        out.writeDouble(d);
+    }
+
+    @Override
+    public void write(String metric, String measurement, String s) throws IOException {
+        writeNames(TYPE_STRING, metric, measurement);
+        writeString(s);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.writeByte(END);
+        out.close();
+    }
+
+    private void writeNames(int type, String metric, String measurement) throws IOException {
+        int tag = type;
+        boolean samemetric = metric.equals(lastmetric);
+        if (samemetric) {
+            tag |= SAME_METRIC;
+        } else {
+            lastmetric = metric;
+            lastnumeric = 0;
+        }
+        long numeric = 0;
+        boolean isnumeric = false;
+        if (isNumber(measurement)) {
+            numeric = Long.parseLong(measurement);
+            // only numbers that print back the same, e.g. not "007"
+            isnumeric = Long.toString(numeric).equals(measurement);
+        }
+        if (isnumeric) {
+            tag |= NUMERIC_MEASUREMENT;
+        }
+        out.writeByte(tag);
+        if (!samemetric) {
+            writeName(metric);
+        }
+        if (isnumeric) {
+            writeVarLong(numeric - lastnumeric);
+            lastnumeric = numeric;
+        } else {
+            writeName(measurement);
+        }
+    }
+
+    private static boolean isNumber(String s) {
+        int length = s.length();
+        if (length == 0 || length > 18) {
+            return false;
+        }
+        int start = (s.charAt(0) == '-') ? 1 : 0;
+        if (start == length) {
+            return false;
+        }
+        for (int i = start; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeName(String name) throws IOException {
+        Integer index = names.get(name);
+        if (index == null) {
+            names.put(name, names.size());
+            writeUnsignedVarLong(0);
+            writeString(name);
+        } else {
+            writeUnsignedVarLong(index + 1);
+        }
+    }
+
+    private void writeString(String s) throws IOException {
+        byte[] bytes = s.getBytes("UTF-8");
+        writeUnsignedVarLong(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        // zigzag, so that small negative values are short too
+        writeUnsignedVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private void writeUnsignedVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
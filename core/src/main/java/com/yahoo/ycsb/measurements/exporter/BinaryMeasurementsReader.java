@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.measurements.exporter;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Vector;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the files written by BinaryMeasurementsExporter and writes the same
+ * measurements to another exporter, so that the tools reading the text or JSON
+ * results keep working.
+ *
+ * Usage: BinaryMeasurementsReader file [-json]
+ */
+public class BinaryMeasurementsReader {
+
+    private DataInputStream in;
+    private Vector<String> names = new Vector<String>();
+
+    public BinaryMeasurementsReader(InputStream is) throws IOException {
+        DataInputStream header = new DataInputStream(is);
+        if (header.readInt() != BinaryMeasurementsExporter.MAGIC) {
+            throw new IOException("Not a binary measurements file");
+        }
+        int version = header.readUnsignedByte();
+        if (version != BinaryMeasurementsExporter.VERSION) {
+            throw new IOException("Unsupported binary measurements version " + version);
+        }
+        int compression = header.readUnsignedByte();
+        if (compression == BinaryMeasurementsExporter.COMPRESSION_GZIP) {
+            is = new GZIPInputStream(is, 65536);
+        } else if (compression != BinaryMeasurementsExporter.COMPRESSION_NONE) {
+            throw new IOException("Unknown compression " + compression);
+        }
+        in = new DataInputStream(new BufferedInputStream(is, 65536));
+    }
+
+    /**
+     * Write all the measurements of the file to the exporter, in the order
+     * they were exported. Does not close the exporter.
+     */
+    public void export(MeasurementsExporter exporter) throws IOException {
+        String metric = null;
+        long numeric = 0;
+        int tag;
+        while ((tag = in.readUnsignedByte()) != BinaryMeasurementsExporter.END) {
+            if ((tag & BinaryMeasurementsExporter.SAME_METRIC) == 0) {
+                metric = readName();
+                numeric = 0;
+            }
+            String measurement;
+            if ((tag & BinaryMeasurementsExporter.NUMERIC_MEASUREMENT) != 0) {
+                numeric += readVarLong();
+                measurement = Long.toString(numeric);
+            } else {
+                measurement = readName();
+            }
+            switch (tag & BinaryMeasurementsExporter.TYPE_MASK) {
+                case BinaryMeasurementsExporter.TYPE_INT:
+                    exporter.write(metric, measurement, (int) readVarLong());
+                    break;
+                case BinaryMeasurementsExporter.TYPE_DOUBLE:
+                    exporter.write(metric, measurement, in.readDouble());
+                    break;
+                case BinaryMeasurementsExporter.TYPE_STRING:
+                    exporter.write(metric, measurement, readString());
+                    break;
+                default:
+                    throw new IOException("Unknown record tag " + tag);
+            }
+        }
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private String readName() throws IOException {
+        int n = (int) readUnsignedVarLong();
+        if (n == 0) {
+            String name = readString();
+            names.add(name);
+            return name;
+        }
+        return names.get(n - 1);
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[(int) readUnsignedVarLong()];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+
+    private long readVarLong() throws IOException {
+        long value = readUnsignedVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readUnsignedVarLong() throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java com.yahoo.ycsb.measurements.exporter.BinaryMeasurementsReader file [-json]");
+            System.exit(0);
+        }
+
+        MeasurementsExporter exporter;
+        if (args.length > 1 && args[1].equals("-json")) {
+            exporter = new JSONMeasurementsExporter(System.out);
+        } else {
+            exporter = new TextMeasurementsExporter(System.out);
+        }
+        BinaryMeasurementsReader reader = new BinaryMeasurementsReader(new FileInputStream(args[0]));
+        try {
+            reader.export(exporter);
+        } finally {
+            reader.close();
+            exporter.close();
+        }
+    }
+}
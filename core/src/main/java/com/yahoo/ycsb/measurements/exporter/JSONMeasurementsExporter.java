@@ -68,9 +68,13 @@ public class JSONMeasurementsExporter implements MeasurementsExporter
     }
   }
 
-    @Override
-    public void write(String metric, String measurement, String s) throws IOException {
-        throw new UnsupportedOperationException("Not supported yet.");
-    }
+  public void write(String metric, String measurement, String s) throws IOException
+  {
+    g.writeStartObject();
+    g.writeStringField("metric", metric);
+    g.writeStringField("measurement", measurement);
+    g.writeStringField("value", s);
+    g.writeEndObject();
+  }
 
 }
@@ -25,6 +25,7 @@ import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
 import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
 import com.yahoo.ycsb.generator.HistogramGenerator;
 import com.yahoo.ycsb.generator.IntegerGenerator;
+import com.yahoo.ycsb.generator.RandomSource;
 import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
 import com.yahoo.ycsb.generator.SkewedLatestGenerator;
 import com.yahoo.ycsb.generator.UniformIntegerGenerator;
@@ -32,8 +33,10 @@ import com.yahoo.ycsb.generator.ZipfianGenerator;
 import com.yahoo.ycsb.measurements.Measurements;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Set;
 import java.util.Vector;
 
 /**
@@ -61,7 +64,19 @@ import java.util.Vector;
  * what distribution should be used to choose the number of records to scan, for
  * each scan, between 1 and maxscanlength (default: uniform)
  * <LI><b>insertorder</b>: should records be inserted in order by key
- * ("ordered"), or in hashed order ("hashed") (default: hashed) </ul>
+ * ("ordered"), or in hashed order ("hashed") (default: hashed)
+ * <LI><b>reuseobjects</b>: should each thread reuse the keys buffer, values,
+ * field sets and result holders of its operations rather than allocate them
+ * for each one; only for DBs that do not keep them once an operation returns
+ * (default: false) <LI><b>trace.record</b>: record the operations of each
+ * thread to this file name followed by the thread id (default: none)
+ * <LI><b>trace.replay</b>: replay the operations recorded with trace.record
+ * instead of generating them (default: none) </ul>
+ *
+ * With the same "seed", each thread chooses the same operations and keys on
+ * every run, as long as no records are inserted: the keys inserted, and the
+ * ones read with the latest and exponential distributions, depend on how the
+ * threads interleave. A trace replays the operations exactly.
  */
 public class CoreWorkload extends Workload {
 
@@ -178,7 +193,8 @@ public class CoreWorkload extends Workload {
     public static final String SCAN_PROPORTION_PROPERTY_DEFAULT = "0.0";
     /**
      * The name of the property for the proportion of transactions that are
-     * read-modify-write.
+     * read-modify-write. With inflight &gt; 1, the read and the update of a
+     * transaction are only measured one by one.
      */
     public static final String READMODIFYWRITE_PROPORTION_PROPERTY = "readmodifywriteproportion";
     /**
@@ -236,10 +252,257 @@ public class CoreWorkload extends Workload {
      * Default value of the percentage operations accessing the hot set.
      */
     public static final String HOTSPOT_OPN_FRACTION_DEFAULT = "0.8";
+    /**
+     * The name of the property for deciding whether each thread reuses the
+     * objects it builds its operations with (true) or allocates them for each
+     * operation (false). The DB must not keep the key buffer, the values, the
+     * field sets or the results once an operation returns, which rules out
+     * more than one operation in flight.
+     */
+    public static final String REUSE_OBJECTS_PROPERTY = "reuseobjects";
+    /**
+     * The default value for the reuseobjects property.
+     */
+    public static final String REUSE_OBJECTS_PROPERTY_DEFAULT = "false";
+    /**
+     * The name of the property for recording the choices each thread makes
+     * to build its operations, to the given file name followed by the thread
+     * id. See OperationTrace.
+     */
+    public static final String TRACE_RECORD_PROPERTY = "trace.record";
+    /**
+     * The name of the property for replaying the operations recorded with
+     * trace.record, instead of generating them. Each thread stops at the end
+     * of its trace. The other properties of the workload must be the same as
+     * when the trace was recorded.
+     */
+    public static final String TRACE_REPLAY_PROPERTY = "trace.replay";
+    boolean reuseobjects;
+    int inflight;
+    String recordtrace;
+    String replaytrace;
+    final Vector<OperationTrace.Writer> recorders = new Vector<OperationTrace.Writer>();
+    final Vector<OperationTrace.Reader> replays = new Vector<OperationTrace.Reader>();
+
+    /**
+     * The operations of a transaction.
+     */
+    enum Operation {
+
+        READ, UPDATE, INSERT, SCAN, READMODIFYWRITE
+    }
+    // the operation of each value of operationchooser, in the same order
+    Operation[] operations;
+    // names of the fields, and the set of each one alone
+    String[] fieldnames;
+    Set<String>[] fieldsets;
+
+    /**
+     * The objects a thread builds its operations with. If reuseobjects is
+     * set, they are recycled from one operation to the next; otherwise each
+     * operation gets new ones.
+     *
+     * Each thread also chooses its operations, keys, fields and lengths with
+     * generators of its own, so that the threads do not write to the same
+     * generators on every operation. They draw from the random numbers of the
+     * thread; the values from a stream split from them, when the DB reads them
+     * on the same thread.
+     *
+     * The choices go through the next*() methods, which record them to the
+     * trace of the thread, or take them from it when replaying.
+     */
+    protected class ThreadState {
+
+        final boolean reuse;
+        final RandomSource valuerandom;
+        final IntegerGenerator keychooser;
+        final DiscreteGenerator operationchooser;
+        final IntegerGenerator fieldchooser;
+        final IntegerGenerator scanlength;
+        final IntegerGenerator fieldlengthgenerator;
+        final char[] key = new char[24];
+        HashMap<String, ByteIterator> values;
+        HashMap<String, ByteIterator>[] updates;
+        RandomByteIterator[] data;
+        HashMap<String, ByteIterator> result;
+        Vector<HashMap<String, ByteIterator>> results;
+        OperationTrace.Writer recorder;
+        OperationTrace.Reader replay;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        ThreadState(boolean reuse, RandomSource random) {
+            this.reuse = reuse;
+            // a stream apart, so that the choices do not depend on how much of
+            // the values the DB reads; and the DB may read them on another thread
+            this.valuerandom = (random != null && inflight <= 1) ? random.split() : Utils.threadRandom();
+            if (random != null) {
+                keychooser = forThread(CoreWorkload.this.keychooser, random);
+                operationchooser = new DiscreteGenerator(CoreWorkload.this.operationchooser, random);
+                fieldchooser = forThread(CoreWorkload.this.fieldchooser, random);
+                scanlength = forThread(CoreWorkload.this.scanlength, random);
+                fieldlengthgenerator = forThread(CoreWorkload.this.fieldlengthgenerator, random);
+            } else {
+                keychooser = CoreWorkload.this.keychooser;
+                operationchooser = CoreWorkload.this.operationchooser;
+                fieldchooser = CoreWorkload.this.fieldchooser;
+                scanlength = CoreWorkload.this.scanlength;
+                fieldlengthgenerator = CoreWorkload.this.fieldlengthgenerator;
+            }
+            if (reuse) {
+                values = new HashMap<String, ByteIterator>();
+                updates = new HashMap[fieldcount];
+                data = new RandomByteIterator[fieldcount];
+                for (int i = 0; i < fieldcount; i++) {
+                    data[i] = new RandomByteIterator(0, valuerandom);
+                    values.put(fieldnames[i], data[i]);
+                    updates[i] = new HashMap<String, ByteIterator>();
+                    updates[i].put(fieldnames[i], data[i]);
+                }
+                result = new HashMap<String, ByteIterator>();
+                results = new Vector<HashMap<String, ByteIterator>>();
+            }
+        }
+
+        int record(int value) {
+            if (recorder != null) {
+                recorder.write(value);
+            }
+            return value;
+        }
+
+        /**
+         * @return the value replayed, which must be there
+         */
+        int replayed() {
+            int value = replay.next();
+            if (value < 0) {
+                throw new IllegalStateException("The trace " + replay.file + " ends in the middle of an operation");
+            }
+            return value;
+        }
+
+        /**
+         * @return the position of the operation in operations, or -1 at the
+         * end of the trace replayed
+         */
+        int nextOperation() {
+            if (replay != null) {
+                return replay.next();
+            }
+            return record(operationchooser.nextIndex());
+        }
+
+        int nextKeynum() {
+            if (replay != null) {
+                return replayed();
+            }
+            int keynum;
+            if (keychooser instanceof ExponentialGenerator) {
+                do {
+                    keynum = transactioninsertkeysequence.lastInt() - keychooser.nextInt();
+                } while (keynum < 0);
+            } else {
+                do {
+                    keynum = keychooser.nextInt();
+                } while (keynum > transactioninsertkeysequence.lastInt());
+            }
+            return record(keynum);
+        }
+
+        /**
+         * @return the key to insert, or -1 at the end of the trace replayed
+         */
+        int nextInsertKeynum(IntegerGenerator sequence) {
+            if (replay != null) {
+                return replay.next();
+            }
+            return record(sequence.nextInt());
+        }
+
+        int nextField() {
+            return (replay != null) ? replayed() : record(fieldchooser.nextInt());
+        }
+
+        int nextScanLength() {
+            return (replay != null) ? replayed() : record(scanlength.nextInt());
+        }
+
+        int nextFieldLength() {
+            return (replay != null) ? replayed() : record(fieldlengthgenerator.nextInt());
+        }
+
+        String keyName(long keynum) {
+            if (!reuse || keynum < 0) {
+                return "user" + keynum;
+            }
+            // writes the digits backwards from the end of the buffer
+            int pos = key.length;
+            do {
+                key[--pos] = (char) ('0' + keynum % 10);
+                keynum /= 10;
+            } while (keynum > 0);
+            key[--pos] = 'r';
+            key[--pos] = 'e';
+            key[--pos] = 's';
+            key[--pos] = 'u';
+            return new String(key, pos, key.length - pos);
+        }
+
+        HashMap<String, ByteIterator> values() {
+            if (!reuse) {
+                HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+                for (int i = 0; i < fieldcount; i++) {
+                    values.put(fieldnames[i], new RandomByteIterator(nextFieldLength(), valuerandom));
+                }
+                return values;
+            }
+            for (int i = 0; i < fieldcount; i++) {
+                data[i].reset(nextFieldLength());
+            }
+            return values;
+        }
+
+        HashMap<String, ByteIterator> update(int field) {
+            if (!reuse) {
+                HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+                values.put(fieldnames[field], new RandomByteIterator(nextFieldLength(), valuerandom));
+                return values;
+            }
+            data[field].reset(nextFieldLength());
+            return updates[field];
+        }
+
+        Set<String> fields(int field) {
+            if (!reuse) {
+                HashSet<String> fields = new HashSet<String>();
+                fields.add(fieldnames[field]);
+                return fields;
+            }
+            return fieldsets[field];
+        }
+
+        HashMap<String, ByteIterator> result() {
+            if (!reuse) {
+                return new HashMap<String, ByteIterator>();
+            }
+            result.clear();
+            return result;
+        }
+
+        Vector<HashMap<String, ByteIterator>> results() {
+            if (!reuse) {
+                return new Vector<HashMap<String, ByteIterator>>();
+            }
+            results.clear();
+            return results;
+        }
+    }
+    // used by the operations called without a state of their own
+    ThreadState noreuse;
     IntegerGenerator keysequence;
     DiscreteGenerator operationchooser;
     IntegerGenerator keychooser;
-    Generator fieldchooser;
+    IntegerGenerator fieldchooser;
     CounterGenerator transactioninsertkeysequence;
     IntegerGenerator scanlength;
     boolean orderedinserts;
@@ -307,25 +570,32 @@ public class CoreWorkload extends Workload {
 
         keysequence = new CounterGenerator(insertstart);
         operationchooser = new DiscreteGenerator();
+        Vector<Operation> chosen = new Vector<Operation>();
         if (readproportion > 0) {
             operationchooser.addValue(readproportion, "READ");
+            chosen.add(Operation.READ);
         }
 
         if (updateproportion > 0) {
             operationchooser.addValue(updateproportion, "UPDATE");
+            chosen.add(Operation.UPDATE);
         }
 
         if (insertproportion > 0) {
             operationchooser.addValue(insertproportion, "INSERT");
+            chosen.add(Operation.INSERT);
         }
 
         if (scanproportion > 0) {
             operationchooser.addValue(scanproportion, "SCAN");
+            chosen.add(Operation.SCAN);
         }
 
         if (readmodifywriteproportion > 0) {
             operationchooser.addValue(readmodifywriteproportion, "READMODIFYWRITE");
+            chosen.add(Operation.READMODIFYWRITE);
         }
+        operations = chosen.toArray(new Operation[chosen.size()]);
 
         transactioninsertkeysequence = new CounterGenerator(recordcount);
         if (requestdistrib.compareTo("uniform") == 0) {
@@ -356,6 +626,19 @@ public class CoreWorkload extends Workload {
         }
 
         fieldchooser = new UniformIntegerGenerator(0, fieldcount - 1);
+        fieldnames = new String[fieldcount];
+        fieldsets = newFieldSets(fieldcount);
+        for (int i = 0; i < fieldcount; i++) {
+            fieldnames[i] = "field" + i;
+            fieldsets[i] = Collections.singleton(fieldnames[i]);
+        }
+
+        reuseobjects = Boolean.parseBoolean(p.getProperty(REUSE_OBJECTS_PROPERTY, REUSE_OBJECTS_PROPERTY_DEFAULT));
+        inflight = Integer.parseInt(p.getProperty(DBWrapper.INFLIGHT, DBWrapper.INFLIGHT_DEFAULT));
+        if (reuseobjects && inflight > 1) {
+            System.err.println("Objects are not reused with more than one operation in flight");
+            reuseobjects = false;
+        }
 
         if (scanlengthdistrib.compareTo("uniform") == 0) {
             scanlength = new UniformIntegerGenerator(1, maxscanlength);
@@ -364,33 +647,108 @@ public class CoreWorkload extends Workload {
         } else {
             throw new WorkloadException("Distribution \"" + scanlengthdistrib + "\" not allowed for scan length");
         }
+
+        noreuse = new ThreadState(false, null);
+
+        recordtrace = p.getProperty(TRACE_RECORD_PROPERTY);
+        replaytrace = p.getProperty(TRACE_REPLAY_PROPERTY);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Set<String>[] newFieldSets(int count) {
+        return new Set[count];
+    }
+
+    /**
+     * Initialize the objects and the generators the thread builds its
+     * operations with. The random numbers of the thread are the stream of its
+     * id, derived from the seed.
+     */
+    @Override
+    public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+        ThreadState state = new ThreadState(reuseobjects, Utils.random(mythreadid));
+        try {
+            if (replaytrace != null) {
+                state.replay = new OperationTrace.Reader(replaytrace, mythreadid);
+                replays.add(state.replay);
+            } else if (recordtrace != null) {
+                state.recorder = new OperationTrace.Writer(recordtrace, mythreadid);
+                recorders.add(state.recorder);
+            }
+        } catch (IOException e) {
+            throw new WorkloadException("Could not open the trace of thread " + mythreadid + ": " + e);
+        }
+        return state;
+    }
+
+    /**
+     * Close the traces recorded and replayed.
+     */
+    @Override
+    public void cleanup() throws WorkloadException {
+        for (OperationTrace.Reader replay : replays) {
+            try {
+                replay.close();
+            } catch (IOException e) {
+                System.err.println("Could not close the trace " + replay.file + ": " + e);
+            }
+        }
+        replays.clear();
+        for (OperationTrace.Writer recorder : recorders) {
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                throw new WorkloadException("Could not write the trace " + recorder.file + ": " + e);
+            }
+        }
+        recorders.clear();
+    }
+
+    /**
+     * A generator of the same distribution as the given one, for a single
+     * thread, drawing from the given random numbers. The zipfian ones share
+     * the zeta computed for the workload. Generators that cannot be copied
+     * are shared.
+     */
+    static IntegerGenerator forThread(IntegerGenerator generator, RandomSource random) {
+        if (generator instanceof ScrambledZipfianGenerator) {
+            return new ScrambledZipfianGenerator((ScrambledZipfianGenerator) generator, random);
+        } else if (generator instanceof ZipfianGenerator) {
+            return new ZipfianGenerator((ZipfianGenerator) generator, random);
+        } else if (generator instanceof SkewedLatestGenerator) {
+            return new SkewedLatestGenerator((SkewedLatestGenerator) generator, random);
+        } else if (generator instanceof UniformIntegerGenerator) {
+            return new UniformIntegerGenerator((UniformIntegerGenerator) generator, random);
+        } else if (generator instanceof HotspotIntegerGenerator) {
+            return new HotspotIntegerGenerator((HotspotIntegerGenerator) generator, random);
+        } else if (generator instanceof ExponentialGenerator) {
+            return new ExponentialGenerator((ExponentialGenerator) generator, random);
+        }
+        return generator;
+    }
+
+    ThreadState state(Object threadstate) {
+        return (threadstate instanceof ThreadState) ? (ThreadState) threadstate : noreuse;
     }
 
     public String buildKeyName(long keynum) {
+        return buildKeyName(keynum, noreuse);
+    }
+
+    String buildKeyName(long keynum, ThreadState state) {
         if (!orderedinserts) {
             keynum = Utils.hash(keynum);
         }
-        return "user" + keynum;
+        return state.keyName(keynum);
     }
 
     HashMap<String, ByteIterator> buildValues() {
-        HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
-
-        for (int i = 0; i < fieldcount; i++) {
-            String fieldkey = "field" + i;
-            ByteIterator data = new RandomByteIterator(fieldlengthgenerator.nextInt());
-            values.put(fieldkey, data);
-        }
-        return values;
+        return noreuse.values();
     }
 
     HashMap<String, ByteIterator> buildUpdate() {
         //update a random field
-        HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
-        String fieldname = "field" + fieldchooser.nextString();
-        ByteIterator data = new RandomByteIterator(fieldlengthgenerator.nextInt());
-        values.put(fieldname, data);
-        return values;
+        return noreuse.update(noreuse.nextField());
     }
 
     /**
@@ -401,9 +759,13 @@ public class CoreWorkload extends Workload {
      * function would have no side effects other than DB operations.
      */
     public boolean doInsert(DB db, Object threadstate) {
-        int keynum = keysequence.nextInt();
-        String dbkey = buildKeyName(keynum);
-        HashMap<String, ByteIterator> values = buildValues();
+        ThreadState state = state(threadstate);
+        int keynum = state.nextInsertKeynum(keysequence);
+        if (keynum < 0) {
+            return false;
+        }
+        String dbkey = buildKeyName(keynum, state);
+        HashMap<String, ByteIterator> values = state.values();
         if (db.insert(table, dbkey, values) == 0) {
             return true;
         } else {
@@ -419,143 +781,164 @@ public class CoreWorkload extends Workload {
      * function would have no side effects other than DB operations.
      */
     public boolean doTransaction(DB db, Object threadstate) {
-        String op = operationchooser.nextString();
-
-        if (op.compareTo("READ") == 0) {
-            doTransactionRead(db);
-        } else if (op.compareTo("UPDATE") == 0) {
-            doTransactionUpdate(db);
-        } else if (op.compareTo("INSERT") == 0) {
-            doTransactionInsert(db);
-        } else if (op.compareTo("SCAN") == 0) {
-            doTransactionScan(db);
-        } else {
-            doTransactionReadModifyWrite(db);
+        ThreadState state = state(threadstate);
+        int operation = state.nextOperation();
+        if (operation < 0) {
+            return false;
+        }
+
+        switch (operations[operation]) {
+            case READ:
+                doTransactionRead(db, state);
+                break;
+            case UPDATE:
+                doTransactionUpdate(db, state);
+                break;
+            case INSERT:
+                doTransactionInsert(db, state);
+                break;
+            case SCAN:
+                doTransactionScan(db, state);
+                break;
+            default:
+                doTransactionReadModifyWrite(db, state);
         }
 
         return true;
     }
 
-    int nextKeynum() {
-        int keynum;
-        if (keychooser instanceof ExponentialGenerator) {
-            do {
-                keynum = transactioninsertkeysequence.lastInt() - keychooser.nextInt();
-            } while (keynum < 0);
-        } else {
-            do {
-                keynum = keychooser.nextInt();
-            } while (keynum > transactioninsertkeysequence.lastInt());
-        }
-        return keynum;
+    public void doTransactionRead(DB db) {
+        doTransactionRead(db, noreuse);
     }
 
-    public void doTransactionRead(DB db) {
+    void doTransactionRead(DB db, ThreadState state) {
         //choose a random key
-        int keynum = nextKeynum();
+        int keynum = state.nextKeynum();
 
-        String keyname = buildKeyName(keynum);
+        String keyname = buildKeyName(keynum, state);
 
-        HashSet<String> fields = null;
+        Set<String> fields = null;
 
         if (!readallfields) {
             //read a random field  
-            String fieldname = "field" + fieldchooser.nextString();
-
-            fields = new HashSet<String>();
-            fields.add(fieldname);
+            fields = state.fields(state.nextField());
         }
 
-        db.read(table, keyname, fields, new HashMap<String, ByteIterator>());
+        db.read(table, keyname, fields, state.result());
     }
 
     public void doTransactionReadModifyWrite(DB db) {
+        doTransactionReadModifyWrite(db, noreuse);
+    }
+
+    void doTransactionReadModifyWrite(DB db, ThreadState state) {
         //choose a random key
-        int keynum = nextKeynum();
+        int keynum = state.nextKeynum();
 
-        String keyname = buildKeyName(keynum);
+        String keyname = buildKeyName(keynum, state);
 
-        HashSet<String> fields = null;
+        Set<String> fields = null;
 
         if (!readallfields) {
             //read a random field  
-            String fieldname = "field" + fieldchooser.nextString();
-
-            fields = new HashSet<String>();
-            fields.add(fieldname);
+            fields = state.fields(state.nextField());
         }
 
         HashMap<String, ByteIterator> values;
 
         if (writeallfields) {
             //new data for all the fields
-            values = buildValues();
+            values = state.values();
         } else {
             //update a random field
-            values = buildUpdate();
+            values = state.update(state.nextField());
         }
 
         //do the transaction
 
+        Measurements measurements = Measurements.getMeasurements();
+        long ist = measurements.getIntendedStartTimeNs();
         long st = System.nanoTime();
 
-        db.read(table, keyname, fields, new HashMap<String, ByteIterator>());
+        db.read(table, keyname, fields, state.result());
 
         db.update(table, keyname, values);
 
+        if (inflight > 1) {
+            // both only return once submitted, and the update does not wait
+            // for the read: the time spent here is not that of the transaction
+            return;
+        }
+
         long en = System.nanoTime();
 
-        Measurements.getMeasurements().measure("READ-MODIFY-WRITE", (int) ((en - st) / 1000));
+        if (ist == 0) {
+            ist = st;
+        }
+        measurements.measure(Measurements.READ_MODIFY_WRITE, (int) ((en - st) / 1000));
+        measurements.measureIntended(Measurements.READ_MODIFY_WRITE, ist, (int) ((en - ist) / 1000));
     }
 
     public void doTransactionScan(DB db) {
+        doTransactionScan(db, noreuse);
+    }
+
+    void doTransactionScan(DB db, ThreadState state) {
         //choose a random key
-        int keynum = nextKeynum();
+        int keynum = state.nextKeynum();
 
-        String startkeyname = buildKeyName(keynum);
+        String startkeyname = buildKeyName(keynum, state);
 
         //choose a random scan length
-        int len = scanlength.nextInt();
+        int len = state.nextScanLength();
 
-        HashSet<String> fields = null;
+        Set<String> fields = null;
 
         if (!readallfields) {
             //read a random field  
-            String fieldname = "field" + fieldchooser.nextString();
-
-            fields = new HashSet<String>();
-            fields.add(fieldname);
+            fields = state.fields(state.nextField());
         }
 
-        db.scan(table, startkeyname, len, fields, new Vector<HashMap<String, ByteIterator>>());
+        db.scan(table, startkeyname, len, fields, state.results());
     }
 
     public void doTransactionUpdate(DB db) {
+        doTransactionUpdate(db, noreuse);
+    }
+
+    void doTransactionUpdate(DB db, ThreadState state) {
         //choose a random key
-        int keynum = nextKeynum();
+        int keynum = state.nextKeynum();
 
-        String keyname = buildKeyName(keynum);
+        String keyname = buildKeyName(keynum, state);
 
         HashMap<String, ByteIterator> values;
 
         if (writeallfields) {
             //new data for all the fields
-            values = buildValues();
+            values = state.values();
         } else {
             //update a random field
-            values = buildUpdate();
+            values = state.update(state.nextField());
         }
 
         db.update(table, keyname, values);
     }
 
     public void doTransactionInsert(DB db) {
+        doTransactionInsert(db, noreuse);
+    }
+
+    void doTransactionInsert(DB db, ThreadState state) {
         //choose the next key
-        int keynum = transactioninsertkeysequence.nextInt();
+        int keynum = state.nextInsertKeynum(transactioninsertkeysequence);
+        if (keynum < 0) {
+            return;
+        }
 
-        String dbkey = buildKeyName(keynum);
+        String dbkey = buildKeyName(keynum, state);
 
-        HashMap<String, ByteIterator> values = buildValues();
+        HashMap<String, ByteIterator> values = state.values();
         db.insert(table, dbkey, values);
     }
 }
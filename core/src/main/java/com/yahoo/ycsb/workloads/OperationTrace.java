@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2010 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License. See accompanying LICENSE file.
+ */
+package com.yahoo.ycsb.workloads;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A record of the choices a client thread made to build its operations: the
+ * operation, the key, the field, the scan length and the length of each
+ * value, in the order they were made. Replaying it gives the thread the same
+ * operations, with the same keys, without running the generators and
+ * whatever the interleaving of the threads.
+ *
+ * Each thread has its own file, the given name followed by the thread id.
+ * The values are non-negative ints, written as varints: 7 bits per byte, the
+ * highest bit set on all the bytes but the last. Most operations take a few
+ * bytes.
+ */
+public class OperationTrace {
+
+    static final int MAGIC = 0x59435354; // YCST
+    static final int VERSION = 1;
+
+    public static String fileName(String name, int threadid) {
+        return name + "." + threadid;
+    }
+
+    /**
+     * Writes the choices of a thread
+     */
+    public static class Writer {
+
+        final String file;
+        final DataOutputStream out;
+        boolean failed = false;
+
+        public Writer(String name, int threadid) throws IOException {
+            file = fileName(name, threadid);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        /**
+         * Record a value. An error stops the recording, but not the run.
+         */
+        public void write(int value) {
+            if (failed) {
+                return;
+            }
+            try {
+                writeVarint(out, value);
+            } catch (IOException e) {
+                System.err.println("Could not write to the trace " + file + ", recording stopped: " + e);
+                failed = true;
+            }
+        }
+
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads the choices of a thread
+     */
+    public static class Reader {
+
+        final String file;
+        final InputStream in;
+
+        public Reader(String name, int threadid) throws IOException {
+            file = fileName(name, threadid);
+            in = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+            DataInputStream header = new DataInputStream(in);
+            if (header.readInt() != MAGIC || header.readInt() != VERSION) {
+                in.close();
+                throw new IOException(file + " is not an operation trace");
+            }
+        }
+
+        /**
+         * @return the next value, or -1 at the end of the trace
+         */
+        public int next() {
+            try {
+                return readVarint(in);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read the trace " + file + ": " + e);
+            }
+        }
+
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * @return the value read, or -1 at the end of the stream
+     */
+    static int readVarint(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (shift == 0) {
+                    return -1;
+                }
+                throw new EOFException("truncated value");
+            }
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
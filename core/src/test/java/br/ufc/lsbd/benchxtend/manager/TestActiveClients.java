@@ -0,0 +1,38 @@
+package br.ufc.lsbd.benchxtend.manager;
+
+import com.yahoo.ycsb.ClientThread;
+import java.util.HashSet;
+import java.util.Set;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestActiveClients {
+
+  @Test
+  public void testAddAndRemove() {
+    ActiveClients active = new ActiveClients();
+    ClientThread[] clients = new ClientThread[1000];
+    for (int i = 0; i < clients.length; i++) {
+      clients[i] = new ClientThread(null, true, null, i, clients.length, null, -1, -1);
+      active.add(clients[i]);
+    }
+    active.add(clients[0]);
+    assertEquals(1000, active.size());
+
+    assertTrue(active.remove(clients[0]));
+    assertFalse(active.remove(clients[0]));
+    assertTrue(active.remove(clients[999]));
+    assertEquals(998, active.size());
+
+    // every other client is picked once
+    Set<ClientThread> removed = new HashSet<ClientThread>();
+    ClientThread client;
+    while ((client = active.removeRandom()) != null) {
+      assertTrue(removed.add(client));
+    }
+    assertEquals(998, removed.size());
+    assertFalse(removed.contains(clients[0]));
+    assertFalse(removed.contains(clients[999]));
+    assertEquals(0, active.size());
+  }
+}
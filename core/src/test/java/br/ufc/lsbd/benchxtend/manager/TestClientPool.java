@@ -0,0 +1,182 @@
+package br.ufc.lsbd.benchxtend.manager;
+
+import br.ufc.lsbd.benchxtend.configuration.Distribution;
+import com.yahoo.ycsb.ClientThread;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestClientPool {
+
+  static class SleepingWorkload extends Workload {
+    public boolean doInsert(DB db, Object threadstate) {
+      return doTransaction(db, threadstate);
+    }
+
+    public boolean doTransaction(DB db, Object threadstate) {
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Has only so many operations, then no more.
+   */
+  static class FiniteWorkload extends SleepingWorkload {
+    AtomicInteger left;
+
+    FiniteWorkload(int operations) {
+      left = new AtomicInteger(operations);
+    }
+
+    public boolean doTransaction(DB db, Object threadstate) {
+      return left.getAndDecrement() > 0 && super.doTransaction(db, threadstate);
+    }
+  }
+
+  /**
+   * Cannot set up the state of any thread, as when a trace is missing.
+   */
+  static class FailingWorkload extends SleepingWorkload {
+    public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException {
+      throw new WorkloadException("No trace for thread " + mythreadid);
+    }
+  }
+
+  static void awaitIdle(ClientPool pool, int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (pool.getIdleCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(count, pool.getIdleCount());
+  }
+
+  static ClientManager newManager(int thinktime) {
+    return newManager(new SleepingWorkload(), thinktime);
+  }
+
+  static ClientManager newManager(Workload workload, int thinktime) {
+    Properties props = new Properties();
+    props.setProperty("db", "com.yahoo.ycsb.BasicDB");
+    props.setProperty("basicdb.verbose", "false");
+    Measurements.setProperties(props);
+    workload.properties = props;
+    workload.thinktime = new ConstantIntegerGenerator(thinktime);
+    ClientManager manager = new ClientManager(new Distribution(), null, workload);
+    manager.clientPool = new ClientPool(manager, 2);
+    return manager;
+  }
+
+  @Test
+  public void testClientsAreReused() throws Exception {
+    ClientManager manager = newManager(0);
+    ClientPool pool = manager.clientPool;
+
+    pool.prepare(3);
+    assertEquals(3, pool.getIdleCount());
+    assertEquals(3, manager.clients.size());
+
+    ClientThread first = pool.activate();
+    ClientThread second = pool.activate();
+    assertEquals(1, pool.getIdleCount());
+    Thread.sleep(20);
+    assertTrue(first.getOpsDone() > 0);
+
+    // a removed client goes back to the pool, and is handed over again
+    first.setStopRequested(true);
+    awaitIdle(pool, 2);
+    int ops = first.getOpsDone();
+    pool.activate();
+    pool.activate();
+    assertEquals(0, pool.getIdleCount());
+    Thread.sleep(20);
+    assertTrue(first.getOpsDone() > ops);
+    assertEquals(3, manager.clients.size());
+
+    // none left, one is created
+    pool.activate();
+    assertEquals(4, manager.clients.size());
+
+    for (ClientThread client : manager.clients) {
+      client.setStopRequested(true);
+    }
+    manager.awaitClients();
+    for (ClientThread client : manager.clients) {
+      client.join();
+    }
+    assertFalse(second.isRunning());
+  }
+
+  @Test
+  public void testRemovedClientsStopWithoutWaiting() throws Exception {
+    ClientManager manager = newManager(10000000);
+    manager.clientPool.prepare(2);
+    manager.add(2, 0);
+    Thread.sleep(20);
+    assertEquals(2, manager.executingClients.get());
+
+    // the clients are waiting between two operations
+    long st = System.nanoTime();
+    manager.remove(2, 0);
+    awaitIdle(manager.clientPool, 2);
+    assertTrue(System.nanoTime() - st < 1000000000L);
+    assertEquals(0, manager.executingClients.get());
+    assertEquals(0, manager.timelineHistory.lastElement().numberClients);
+    manager.awaitClients();
+  }
+
+  @Test(timeOut = 5000)
+  public void testPrepareReturnsWhenClientsCannotBeCreated() throws Exception {
+    ClientManager manager = newManager(0);
+    // as when the pool is closed while clients are being ensured
+    manager.clientPool.spinup.shutdown();
+    manager.clientPool.prepare(2);
+    assertEquals(0, manager.clientPool.getIdleCount());
+    assertEquals(0, manager.clientPool.pending.get());
+  }
+
+  @Test(timeOut = 5000)
+  public void testClientsLeaveOnceTheWorkloadIsOver() throws Exception {
+    ClientManager manager = newManager(new FiniteWorkload(5), 0);
+    manager.clientPool.prepare(1);
+    manager.add(1, 0);
+    ClientThread client = manager.clients.get(0);
+
+    // it does not go back to the pool, nor counts operations it did not do
+    client.awaitCompletion();
+    assertTrue(client.isFinished());
+    assertEquals(5, client.getOpsDone());
+    assertEquals(0, manager.clientPool.getIdleCount());
+    assertEquals(0, manager.executingClients.get());
+    assertEquals(0, manager.timelineHistory.lastElement().numberClients);
+    manager.awaitClients();
+  }
+
+  @Test
+  public void testClientsThatCannotBeSetUpAreNotHandedOver() throws Exception {
+    ClientManager manager = newManager(new FailingWorkload(), 0);
+    manager.clientPool.prepare(2);
+    assertEquals(0, manager.clientPool.getIdleCount());
+    assertEquals(0, manager.clients.size());
+
+    // none idle, the client created on the spot leaves as soon as it fails
+    manager.add(1, 0);
+    ClientThread client = manager.clients.get(0);
+    client.awaitCompletion();
+    assertTrue(client.isFinished());
+    assertEquals(0, manager.activeClients.size());
+    assertEquals(0, manager.executingClients.get());
+    assertEquals(0, manager.timelineHistory.lastElement().numberClients);
+    manager.awaitClients();
+  }
+}
@@ -0,0 +1,40 @@
+package br.ufc.lsbd.benchxtend.manager;
+
+import br.ufc.lsbd.benchxtend.configuration.Entry;
+import java.util.ArrayList;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestInterpolation {
+
+  static ArrayList<Entry> timeline(float... times) {
+    ArrayList<Entry> entries = new ArrayList<Entry>();
+    for (float time : times) {
+      entries.add(new Entry(time, (int) time));
+    }
+    return entries;
+  }
+
+  @Test
+  public void testSpacingMultipleOfTheStep() {
+    // 60 / 0.3 is just under 200 in float
+    ArrayList<Entry> result = Interpolation.interpolate(timeline(60, 120), 0.3f, Interpolation.LINEAR);
+    assertEquals(201, result.size());
+    assertEquals(120f, result.get(200).time);
+    assertTrue(result.get(199).time < 120f);
+  }
+
+  @Test
+  public void testEntryDueIsPickedByTime() {
+    // the step does not divide the spacing: 0, 0.3, 0.6, 1.0, 1.3, 1.6, 2.0
+    ArrayList<Entry> result = Interpolation.interpolate(timeline(0, 1, 2), 0.3f, Interpolation.LINEAR);
+    assertEquals(7, result.size());
+    assertEquals(2, ClientManager.getDueIndex(result, 0, 0.9f));
+    assertEquals(3, ClientManager.getDueIndex(result, 0, 1.2f));
+    // from a later entry, and past the end
+    assertEquals(5, ClientManager.getDueIndex(result, 3, 1.8f));
+    assertEquals(6, ClientManager.getDueIndex(result, 3, 5f));
+    // the runs are due at multiples of the step, a hair off the entries
+    assertEquals(1, ClientManager.getDueIndex(result, 0, 0.2999999f));
+  }
+}
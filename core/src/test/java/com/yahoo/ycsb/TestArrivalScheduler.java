@@ -0,0 +1,54 @@
+package com.yahoo.ycsb;
+
+import br.ufc.lsbd.benchxtend.configuration.Distribution;
+import br.ufc.lsbd.benchxtend.configuration.Entry;
+import java.util.ArrayList;
+import java.util.Properties;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestArrivalScheduler {
+
+  static int countArrivals(ArrivalScheduler arrivals) {
+    int count = 0;
+    long next = 0;
+    while ((next = arrivals.next(0, next)) != ArrivalScheduler.STOP) {
+      count++;
+    }
+    return count;
+  }
+
+  @Test
+  public void testTimelineRates() {
+    Distribution timeline = new Distribution();
+    timeline.timeline = new ArrayList<Entry>();
+    timeline.timeline.add(new Entry(1f, 50));
+    timeline.timeline.add(new Entry(4f, 100));
+    Properties props = new Properties();
+    props.setProperty(ArrivalScheduler.ARRIVALS, "constant");
+
+    // 25 arrivals ramping to the first entry, then 225 to the second
+    ArrivalScheduler arrivals = new ArrivalScheduler(props, timeline, 1, 0, null);
+    assertEquals(0.0, arrivals.rate(0), 0.001);
+    assertEquals(75.0, arrivals.rate(2500000000L), 0.001);
+    assertEquals(250, countArrivals(arrivals), 1);
+
+    props.setProperty(ArrivalScheduler.ARRIVALS, "poisson");
+    arrivals = new ArrivalScheduler(props, timeline, 1, 0, null);
+    int total = 0;
+    for (int i = 0; i < 20; i++) {
+      total += countArrivals(arrivals);
+    }
+    assertEquals(250, total / 20.0, 15);
+  }
+
+  @Test
+  public void testConstantRate() {
+    Properties props = new Properties();
+    props.setProperty(ArrivalScheduler.ARRIVALS, "constant");
+    props.setProperty(ArrivalScheduler.ARRIVAL_RATE, "1000");
+    ArrivalScheduler arrivals = new ArrivalScheduler(props, null, 1, 0, null);
+    assertEquals(1000000L, arrivals.next(0, 0));
+    assertEquals(3000000L, arrivals.next(0, 2000000L));
+  }
+}
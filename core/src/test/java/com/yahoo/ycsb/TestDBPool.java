@@ -0,0 +1,149 @@
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.FreshMeasurements;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import com.yahoo.ycsb.workloads.CoreWorkload;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestDBPool {
+
+  static AtomicInteger busy = new AtomicInteger();
+  static AtomicInteger maxbusy = new AtomicInteger();
+  static AtomicInteger instances = new AtomicInteger();
+
+  /**
+   * Counts how many of its instances are used at the same time.
+   */
+  public static class CountingDB extends DB {
+    public CountingDB() {
+      instances.incrementAndGet();
+    }
+
+    int operation() {
+      int n = busy.incrementAndGet();
+      int max;
+      while (n > (max = maxbusy.get()) && !maxbusy.compareAndSet(max, n)) {
+      }
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+      }
+      busy.decrementAndGet();
+      return 0;
+    }
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      return operation();
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      return operation();
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      return operation();
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      return operation();
+    }
+
+    public int delete(String table, String key) {
+      return operation();
+    }
+  }
+
+  @Test
+  public void testClientsShareTheConnections() throws Exception {
+    Properties props = new Properties();
+    Measurements.setProperties(props);
+    final DBPool pool = new DBPool(CountingDB.class.getName(), props, 3);
+
+    Thread[] clients = new Thread[20];
+    for (int i = 0; i < clients.length; i++) {
+      final DB db = pool.newClientDB();
+      clients[i] = new Thread() {
+        public void run() {
+          for (int j = 0; j < 20; j++) {
+            assertEquals(0, db.delete("usertable", "user" + j));
+          }
+        }
+      };
+      clients[i].start();
+    }
+    for (Thread client : clients) {
+      client.join();
+    }
+    pool.close();
+
+    assertEquals(3, instances.get());
+    assertTrue(maxbusy.get() <= 3);
+
+    // the waits for a connection are recorded
+    String summary = Measurements.getMeasurements().getSummary();
+    assertTrue(summary, summary.contains(DBPool.CONNECTION));
+  }
+
+  /**
+   * @return the highest response time of the read-modify-write transactions
+   */
+  static int maxIntendedReadModifyWrite(Measurements measurements) throws Exception {
+    final int[] max = {-1};
+    measurements.exportMeasurements(new MeasurementsExporter() {
+      public void write(String metric, String measurement, int i) {
+        if (metric.equals("Intended-READ-MODIFY-WRITE") && measurement.equals("MaxLatency(us)")) {
+          max[0] = i;
+        }
+      }
+
+      public void write(String metric, String measurement, double d) {
+      }
+
+      public void write(String metric, String measurement, String s) {
+      }
+
+      public void close() {
+      }
+    });
+    return max[0];
+  }
+
+  @Test
+  public void testWaitsDoNotOutliveTheirOperation() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(Measurements.MEASUREMENT_INTERVAL, "both");
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "10");
+    Measurements previous = FreshMeasurements.replace(props);
+    try {
+      Measurements measurements = Measurements.getMeasurements();
+      DBPool pool = new DBPool(CountingDB.class.getName(), props, 1);
+      DB db = pool.newClientDB();
+      assertEquals(0, db.delete("usertable", "user1"));
+      assertEquals(0, measurements.getIntendedStartTimeNs());
+
+      // the transaction starts long after the wait of the delete
+      Thread.sleep(200);
+      CoreWorkload workload = new CoreWorkload();
+      workload.init(props);
+      workload.doTransactionReadModifyWrite(db);
+      int max = maxIntendedReadModifyWrite(measurements);
+      assertTrue(String.valueOf(max), max >= 0 && max < 200000);
+
+      // a scheduled operation keeps its own start
+      measurements.setIntendedStartTimeNs(42);
+      assertEquals(0, db.delete("usertable", "user1"));
+      assertEquals(42, measurements.getIntendedStartTimeNs());
+      measurements.setIntendedStartTimeNs(0);
+      pool.close();
+    } finally {
+      FreshMeasurements.restore(previous);
+    }
+  }
+}
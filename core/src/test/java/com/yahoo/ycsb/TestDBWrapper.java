@@ -0,0 +1,103 @@
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.measurements.Measurements;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestDBWrapper {
+
+  /**
+   * Completes each operation a little later, on another thread.
+   */
+  static class DelayedDB extends AsyncDB {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    AtomicInteger inflight = new AtomicInteger();
+    AtomicInteger maxinflight = new AtomicInteger();
+    AtomicInteger completed = new AtomicInteger();
+
+    void complete(final Callback callback) {
+      int n = inflight.incrementAndGet();
+      int max;
+      while (n > (max = maxinflight.get()) && !maxinflight.compareAndSet(max, n)) {
+      }
+      executor.execute(new Runnable() {
+        public void run() {
+          try {
+            Thread.sleep(2);
+          } catch (InterruptedException e) {
+          }
+          inflight.decrementAndGet();
+          completed.incrementAndGet();
+          callback.completed(0);
+        }
+      });
+    }
+
+    @Override
+    public void cleanup() {
+      executor.shutdown();
+    }
+
+    public void readAsync(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result, Callback callback) {
+      complete(callback);
+    }
+
+    public void scanAsync(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result, Callback callback) {
+      complete(callback);
+    }
+
+    public void updateAsync(String table, String key, HashMap<String, ByteIterator> values, Callback callback) {
+      complete(callback);
+    }
+
+    public void insertAsync(String table, String key, HashMap<String, ByteIterator> values, Callback callback) {
+      complete(callback);
+    }
+
+    public void deleteAsync(String table, String key, Callback callback) {
+      complete(callback);
+    }
+  }
+
+  @Test
+  public void testInflightOperations() throws Exception {
+    DelayedDB db = new DelayedDB();
+    Properties props = new Properties();
+    props.setProperty(DBWrapper.INFLIGHT, "4");
+    db.setProperties(props);
+    Measurements.setProperties(props);
+    DBWrapper wrapper = new DBWrapper(db);
+    wrapper.init();
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals(0, wrapper.insert("usertable", "user" + i, new HashMap<String, ByteIterator>()));
+    }
+    wrapper.cleanup();
+
+    assertEquals(100, db.completed.get());
+    assertEquals(4, db.maxinflight.get());
+  }
+
+  @Test
+  public void testBlockingAsyncDB() throws Exception {
+    DelayedDB db = new DelayedDB();
+    db.setProperties(new Properties());
+    Measurements.setProperties(db.getProperties());
+    DBWrapper wrapper = new DBWrapper(db);
+    wrapper.init();
+
+    for (int i = 0; i < 10; i++) {
+      assertEquals(0, wrapper.read("usertable", "user" + i, null, new HashMap<String, ByteIterator>()));
+      assertEquals(i + 1, db.completed.get());
+    }
+    wrapper.cleanup();
+    assertEquals(1, db.maxinflight.get());
+  }
+}
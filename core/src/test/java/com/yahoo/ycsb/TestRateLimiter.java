@@ -0,0 +1,69 @@
+package com.yahoo.ycsb;
+
+import java.util.Arrays;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestRateLimiter {
+
+  @Test
+  public void testSlotsFollowTheRate() {
+    RateLimiter limiter = new RateLimiter(1000);
+    long first = limiter.acquire();
+    assertEquals(1000000L, limiter.acquire() - first);
+    assertEquals(2000000L, limiter.acquire() - first);
+    assertTrue(System.nanoTime() >= first + 2000000L);
+
+    // the slots after the change are spaced at the new rate
+    limiter.setRate(4000);
+    assertEquals(3000000L, limiter.acquire() - first);
+    assertEquals(3250000L, limiter.acquire() - first);
+    assertEquals(3500000L, limiter.acquire() - first);
+  }
+
+  @Test
+  public void testLateSlotsAreNotWaitedFor() throws Exception {
+    RateLimiter limiter = new RateLimiter(1000);
+    long first = limiter.acquire();
+    Thread.sleep(20);
+    // the operations catch up with the schedule rather than restart it
+    long st = System.nanoTime();
+    for (int i = 1; i <= 10; i++) {
+      assertEquals(i * 1000000L, limiter.acquire() - first);
+    }
+    assertTrue(System.nanoTime() - st < 10000000L);
+  }
+
+  @Test
+  public void testRateChangesDoNotReuseSlots() throws Exception {
+    // fast enough that the slots are always late and never waited for
+    final RateLimiter limiter = new RateLimiter(1e8);
+    final int perthread = 20000;
+    final long[] dues = new long[4 * perthread];
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final int first = t * perthread;
+      threads[t] = new Thread() {
+        public void run() {
+          for (int i = 0; i < perthread; i++) {
+            dues[first + i] = limiter.acquire();
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (int i = 0; threads[threads.length - 1].isAlive() && i < 1000; i++) {
+      limiter.setRate(i % 2 == 0 ? 2e8 : 1e8);
+      Thread.yield();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    // each slot is taken from one schedule, so no two are due at once
+    Arrays.sort(dues);
+    for (int i = 1; i < dues.length; i++) {
+      assertTrue("slot " + i + " due with the previous one", dues[i] > dues[i - 1]);
+    }
+  }
+}
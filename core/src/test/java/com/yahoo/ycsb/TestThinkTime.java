@@ -0,0 +1,68 @@
+package com.yahoo.ycsb;
+
+import com.yahoo.ycsb.generator.IntegerGenerator;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Properties;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestThinkTime {
+
+  static double average(IntegerGenerator generator, int count) {
+    double sum = 0;
+    for (int i = 0; i < count; i++) {
+      int value = generator.nextInt();
+      assertTrue(value >= 0);
+      sum += value;
+    }
+    return sum / count;
+  }
+
+  @Test
+  public void testDistributionsHaveTheMean() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(Workload.THINK_TIME_MEAN_PROPERTY, "10");
+    // a finite variance for the average of the pareto values to converge
+    props.setProperty(Workload.THINK_TIME_SHAPE_PROPERTY, "3");
+    for (String type : new String[]{"constant", "exponential", "uniform", "pareto"}) {
+      props.setProperty(Workload.THINK_TIME_PROPERTY, type);
+      IntegerGenerator generator = Workload.createThinkTimeGenerator(props);
+      assertEquals(type, 10000.0, generator.mean(), 1);
+      assertEquals(type, 10000.0, average(generator, 200000), 500);
+    }
+
+    // no pareto value is less than its scale
+    props.setProperty(Workload.THINK_TIME_PROPERTY, "pareto");
+    IntegerGenerator pareto = Workload.createThinkTimeGenerator(props);
+    for (int i = 0; i < 1000; i++) {
+      assertTrue(pareto.nextInt() >= 5000);
+    }
+  }
+
+  @Test
+  public void testReplayFromFile() throws Exception {
+    File file = File.createTempFile("thinktime", ".txt");
+    file.deleteOnExit();
+    FileWriter writer = new FileWriter(file);
+    writer.write("# think times\n1\n2.5\n\n0\n");
+    writer.close();
+
+    Properties props = new Properties();
+    props.setProperty(Workload.THINK_TIME_PROPERTY, "file");
+    props.setProperty(Workload.THINK_TIME_FILE_PROPERTY, file.getPath());
+    IntegerGenerator generator = Workload.createThinkTimeGenerator(props);
+    int[] expected = {1000, 2500, 0, 1000, 2500};
+    for (int value : expected) {
+      assertEquals(value, generator.nextInt());
+    }
+    assertEquals(3500 / 3.0, generator.mean(), 0.001);
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void testUnknownDistribution() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(Workload.THINK_TIME_PROPERTY, "gaussian");
+    Workload.createThinkTimeGenerator(props);
+  }
+}
@@ -0,0 +1,98 @@
+package com.yahoo.ycsb.generator;
+
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.WorkloadException;
+import java.util.Properties;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestRandomSource {
+
+  static final String[] SOURCES = {"splitmix", "xoroshiro", "com.yahoo.ycsb.generator.SplitMix64Random"};
+
+  @Test
+  public void testSameSeedSameNumbers() throws Exception {
+    for (String name : SOURCES) {
+      RandomSource first = RandomSource.create(name, 42);
+      RandomSource second = RandomSource.create(name, 42);
+      RandomSource other = RandomSource.create(name, 43);
+      boolean differ = false;
+      for (int i = 0; i < 1000; i++) {
+        long value = first.nextLong();
+        assertEquals(name, value, second.nextLong());
+        differ |= value != other.nextLong();
+      }
+      assertTrue(name, differ);
+
+      first.setSeed(7);
+      second.setSeed(7);
+      assertEquals(name, first.nextLong(), second.nextLong());
+    }
+  }
+
+  @Test
+  public void testSplitsAreIndependent() throws Exception {
+    for (String name : SOURCES) {
+      RandomSource source = RandomSource.create(name, 42);
+      RandomSource split = source.split();
+      RandomSource again = RandomSource.create(name, 42).split();
+      int same = 0;
+      for (int i = 0; i < 1000; i++) {
+        long value = split.nextLong();
+        assertEquals(name, value, again.nextLong());
+        if (value == source.nextLong()) {
+          same++;
+        }
+      }
+      assertEquals(name, 0, same);
+    }
+  }
+
+  @Test
+  public void testValuesAreInRangeAndEven() throws Exception {
+    for (String name : SOURCES) {
+      RandomSource source = RandomSource.create(name, 1);
+      int[] counts = new int[10];
+      int n = 100000;
+      for (int i = 0; i < n; i++) {
+        counts[source.nextInt(10)]++;
+        double d = source.nextDouble();
+        assertTrue(d >= 0 && d < 1);
+      }
+      for (int count : counts) {
+        assertEquals(name, n / 10, count, n / 100);
+      }
+    }
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void testUnknownSource() throws Exception {
+    RandomSource.create("nosuchrandom", 1);
+  }
+
+  @Test
+  public void testStreamsFollowTheSeed() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(Utils.SEED_PROPERTY, "1234");
+    Utils.setRandom(props);
+    long first = Utils.random(3).nextLong();
+    long other = Utils.random(4).nextLong();
+    Utils.setRandom(props);
+    assertEquals(1234, Utils.getSeed());
+    assertEquals(other, Utils.random(4).nextLong());
+    assertEquals(first, Utils.random(3).nextLong());
+    assertTrue(first != other);
+  }
+
+  @Test
+  public void testParetoDrawsFromItsSource() throws Exception {
+    ParetoGenerator shared = ParetoGenerator.withMean(100, 2);
+    ParetoGenerator first = new ParetoGenerator(shared, new SplitMix64Random(42));
+    ParetoGenerator second = new ParetoGenerator(shared, new SplitMix64Random(42));
+    for (int i = 0; i < 1000; i++) {
+      int value = first.nextInt();
+      assertEquals(value, second.nextInt());
+      assertTrue(value >= 50);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.yahoo.ycsb.generator;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestZipfianGenerator {
+
+  @Test
+  public void testCopySharesTheComputedConstants() {
+    ZipfianGenerator zipfian = new ZipfianGenerator(100000);
+    ZipfianGenerator copy = new ZipfianGenerator(zipfian, new SplitMix64Random(1));
+    assertEquals(zipfian.zetan, copy.zetan, 0);
+    assertEquals(zipfian.eta, copy.eta, 0);
+    assertEquals(zipfian.countforzeta, copy.countforzeta);
+
+    // growing the copy does not touch the original
+    copy.nextLong(200000);
+    assertEquals(200000, copy.countforzeta);
+    assertEquals(100000, zipfian.countforzeta);
+    assertEquals(ZipfianGenerator.zetastatic(200000, ZipfianGenerator.ZIPFIAN_CONSTANT), copy.zetan, 1e-9);
+  }
+
+  @Test
+  public void testCopyHasTheSameDistribution() {
+    ZipfianGenerator zipfian = new ZipfianGenerator(1000);
+    ZipfianGenerator copy = new ZipfianGenerator(zipfian, new SplitMix64Random(1));
+    int n = 200000;
+    int[] original = new int[2];
+    int[] copied = new int[2];
+    for (int i = 0; i < n; i++) {
+      original[Math.min(1, zipfian.nextInt())]++;
+      copied[Math.min(1, copy.nextInt())]++;
+    }
+    // item 0 is drawn about 1/zetan of the time
+    double expected = n / zipfian.zetan;
+    assertEquals(expected, original[0], expected * 0.05);
+    assertEquals(expected, copied[0], expected * 0.05);
+  }
+}
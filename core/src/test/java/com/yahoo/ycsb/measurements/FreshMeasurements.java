@@ -0,0 +1,26 @@
+package com.yahoo.ycsb.measurements;
+
+import java.util.Properties;
+
+/**
+ * Lets the tests of other packages replace the Measurements singleton.
+ */
+public class FreshMeasurements {
+
+  /**
+   * Make the next getMeasurements() create new measurements with the given
+   * properties.
+   *
+   * @return the measurements to restore() once done
+   */
+  public static Measurements replace(Properties props) {
+    Measurements previous = Measurements.singleton;
+    Measurements.setProperties(props);
+    Measurements.singleton = null;
+    return previous;
+  }
+
+  public static void restore(Measurements previous) {
+    Measurements.singleton = previous;
+  }
+}
@@ -0,0 +1,105 @@
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.BasicDB;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DBWrapper;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Properties;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestClientOverhead {
+
+  /**
+   * Keeps what is exported, one "metric measurement=value" line each.
+   */
+  static class CollectingExporter implements MeasurementsExporter {
+    StringBuilder lines = new StringBuilder();
+
+    public void write(String metric, String measurement, int i) {
+      lines.append(metric).append(' ').append(measurement).append('=').append(i).append('\n');
+    }
+
+    public void write(String metric, String measurement, double d) {
+      lines.append(metric).append(' ').append(measurement).append('=').append(d).append('\n');
+    }
+
+    public void write(String metric, String measurement, String s) {
+      lines.append(metric).append(' ').append(measurement).append('=').append(s).append('\n');
+    }
+
+    public void close() {
+    }
+  }
+
+  Measurements previous;
+
+  @BeforeMethod
+  public void newMeasurements() {
+    previous = Measurements.singleton;
+    Properties props = new Properties();
+    props.setProperty(ClientOverhead.CLIENT_OVERHEAD, "true");
+    props.setProperty("basicdb.verbose", "false");
+    Measurements.setProperties(props);
+    Measurements.singleton = null;
+  }
+
+  @AfterMethod
+  public void restoreMeasurements() {
+    Measurements.singleton = previous;
+  }
+
+  static String export(Measurements measurements) throws IOException {
+    CollectingExporter exporter = new CollectingExporter();
+    measurements.exportMeasurements(exporter);
+    return exporter.lines.toString();
+  }
+
+  @Test
+  public void testOperationsDuringGcAreRecordedApart() throws Exception {
+    Measurements measurements = Measurements.getMeasurements();
+    ClientOverhead.Sampler sampler = measurements.getClientOverhead().newSampler();
+
+    sampler.begin();
+    sampler.end(Measurements.READ, System.nanoTime(), 10);
+    sampler.begin();
+    System.gc();
+    sampler.end(Measurements.READ, System.nanoTime(), 2000);
+
+    String lines = export(measurements);
+    assertTrue(lines, lines.contains("ClientGC-READ Operations=1\n"));
+    assertTrue(lines, lines.contains("READ OperationsDuringClientGc=1\n"));
+    assertTrue(lines, lines.contains("READ ClientCpuPerOperation(us)="));
+    assertTrue(lines, lines.contains("READ ClientAllocatedBytesPerOperation="));
+  }
+
+  @Test
+  public void testExportWithoutSamplesInFlight() throws Exception {
+    Measurements measurements = Measurements.getMeasurements();
+    Properties props = new Properties();
+    props.setProperty(DBWrapper.INFLIGHT, "2");
+    props.setProperty("basicdb.verbose", "false");
+    BasicDB db = new BasicDB();
+    db.setProperties(props);
+    DBWrapper wrapper = new DBWrapper(db);
+    wrapper.init();
+    for (int i = 0; i < 10; i++) {
+      wrapper.update("usertable", "user" + i, new HashMap<String, ByteIterator>());
+    }
+    wrapper.cleanup();
+
+    // the operations in flight are not sampled: the costs of the client are
+    // exported as a whole, and none per operation
+    String lines = export(measurements);
+    assertTrue(lines, lines.contains("UPDATE Operations=10\n"));
+    assertTrue(lines, lines.contains("CLIENT CpuTime(ms)="));
+    assertTrue(lines, lines.contains("CLIENT Allocated(MB)="));
+    assertTrue(lines, lines.contains("CLIENT GcCount="));
+    assertFalse(lines, lines.contains("PerOperation"));
+    assertFalse(lines, lines.contains("NaN"));
+  }
+}
@@ -0,0 +1,51 @@
+package com.yahoo.ycsb.measurements;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestLogLinearHistogram {
+
+  @Test
+  public void testSmallValuesAreExact() {
+    LogLinearHistogram h = new LogLinearHistogram(3600000000L, 2);
+    for (int v = 0; v < 256; v++) {
+      h.record(v);
+    }
+    long[] values = h.valuesAtPercentiles(h.counts(), new double[] {0, 50, 100});
+    assertEquals(0, values[0]);
+    assertEquals(127, values[1]);
+    assertEquals(255, values[2]);
+  }
+
+  @Test
+  public void testPercentilesWithinPrecision() {
+    LogLinearHistogram h = new LogLinearHistogram(3600000000L, 2);
+    for (int v = 1; v <= 1000000; v++) {
+      h.record(v);
+    }
+    double[] percentiles = new double[] {50, 90, 99, 99.9, 99.99};
+    long[] values = h.valuesAtPercentiles(h.counts(), percentiles);
+    for (int i = 0; i < percentiles.length; i++) {
+      double expected = percentiles[i] * 10000;
+      assertTrue(percentiles[i] + "th was " + values[i], Math.abs(values[i] - expected) <= expected * 0.01);
+    }
+  }
+
+  @Test
+  public void testLargeValuesAreClamped() {
+    LogLinearHistogram h = new LogLinearHistogram(60000000L, 3);
+    h.record(Long.MAX_VALUE);
+    long[] values = h.valuesAtPercentiles(h.counts(), new double[] {100});
+    assertTrue(values[0] >= 60000000L);
+    assertTrue(values[0] <= 60000000L * 1.001);
+  }
+
+  @Test
+  public void testStripesFitInTheBudget() {
+    int length = new LogLinearHistogram(3600000000L, 3).length();
+    int stripes = LogLinearHistogram.stripesFor(length);
+    assertTrue(stripes == 1 || (long) stripes * length <= LogLinearHistogram.MAX_COUNTS);
+    assertTrue(stripes <= StripedLongArray.STRIPES);
+    assertEquals(1, LogLinearHistogram.stripesFor(LogLinearHistogram.MAX_COUNTS));
+  }
+}
@@ -0,0 +1,81 @@
+package com.yahoo.ycsb.measurements;
+
+import br.ufc.lsbd.benchxtend.configuration.Distribution;
+import br.ufc.lsbd.benchxtend.manager.ClientManager;
+import br.ufc.lsbd.benchxtend.manager.ClientPool;
+import com.yahoo.ycsb.ClientThread;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
+import java.util.Properties;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestMetricsServer {
+
+  static class SleepingWorkload extends Workload {
+    public boolean doInsert(DB db, Object threadstate) {
+      return doTransaction(db, threadstate);
+    }
+
+    public boolean doTransaction(DB db, Object threadstate) {
+      try {
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return true;
+    }
+  }
+
+  static String value(String body, String metric) {
+    for (String line : body.split("\n")) {
+      if (line.startsWith(metric + " ")) {
+        return line.substring(metric.length() + 1);
+      }
+    }
+    fail(metric + " not in " + body);
+    return null;
+  }
+
+  @Test
+  public void testScrape() throws Exception {
+    Properties props = new Properties();
+    props.setProperty("db", "com.yahoo.ycsb.BasicDB");
+    props.setProperty("basicdb.verbose", "false");
+    props.setProperty(MetricsServer.PORT, "0");
+    Measurements.setProperties(props);
+    Workload workload = new SleepingWorkload();
+    workload.properties = props;
+    workload.thinktime = new ConstantIntegerGenerator(0);
+    ClientManager manager = new ClientManager(new Distribution(), null, workload);
+    manager.clientPool = new ClientPool(manager, 1);
+
+    // three clients waiting in the pool, one of them then handed over
+    manager.clientPool.prepare(3);
+    ClientThread active = manager.clientPool.activate();
+    long deadline = System.currentTimeMillis() + 5000;
+    while (active.getOpsDone() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+
+    MetricsServer server = new MetricsServer(props, manager.clients, false);
+    try {
+      String body = server.scrape();
+      assertEquals("1", value(body, "ycsb_active_clients"));
+      assertTrue(Long.parseLong(value(body, "ycsb_operations_total")) > 0);
+      for (String line : body.split("\n")) {
+        if (line.startsWith("#")) {
+          assertTrue(line, line.matches("# (HELP|TYPE) ycsb_[a-z_]+ .+"));
+        } else {
+          assertTrue(line, line.matches("ycsb_[a-z_]+(\\{[^}]*\\})? -?[0-9.E]+"));
+        }
+      }
+      assertTrue(body.contains("# TYPE ycsb_operations_total counter\n"));
+    } finally {
+      server.stop();
+      active.setStopRequested(true);
+      manager.awaitClients();
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.yahoo.ycsb.measurements;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Properties;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestOneMeasurementHistogram {
+
+  static class MapExporter implements MeasurementsExporter {
+    HashMap<String, String> values = new HashMap<String, String>();
+
+    public void write(String metric, String measurement, int i) {
+      values.put(measurement, Integer.toString(i));
+    }
+
+    public void write(String metric, String measurement, double d) {
+      values.put(measurement, Double.toString(d));
+    }
+
+    public void write(String metric, String measurement, String s) {
+      values.put(measurement, s);
+    }
+
+    public void close() {
+    }
+  }
+
+  @Test
+  public void testConcurrentMeasure() throws Exception {
+    final OneMeasurementHistogram histogram = new OneMeasurementHistogram("READ", new Properties());
+    final int threads = 16;
+    final int perthread = 100000;
+    Thread[] workers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      workers[t] = new Thread() {
+        public void run() {
+          for (int i = 0; i < perthread; i++) {
+            histogram.measure(500 + (i % 2000));
+            histogram.reportReturnCode(0);
+          }
+        }
+      };
+      workers[t].start();
+    }
+    for (Thread t : workers) {
+      t.join();
+    }
+
+    MapExporter exporter = new MapExporter();
+    histogram.exportMeasurements(exporter);
+    assertEquals(Integer.toString(threads * perthread), exporter.values.get("Operations"));
+    assertEquals(Integer.toString(threads * perthread), exporter.values.get("Return=0"));
+    assertEquals("500", exporter.values.get("MinLatency(us)"));
+    assertEquals("2499", exporter.values.get("MaxLatency(us)"));
+    // 500..999 land in bucket 0, 1000..1999 in bucket 1, 2000..2499 in bucket 2
+    assertEquals(Integer.toString(threads * perthread / 4), exporter.values.get("0"));
+    assertEquals(Integer.toString(threads * perthread / 2), exporter.values.get("1"));
+    assertEquals(Integer.toString(threads * perthread / 4), exporter.values.get("2"));
+  }
+
+  @Test
+  public void testSummaryResetsWindow() throws IOException {
+    OneMeasurementHistogram histogram = new OneMeasurementHistogram("READ", new Properties());
+    histogram.measure(100);
+    histogram.measure(300);
+    assertEquals("[READ AverageLatency(us)=200]", histogram.getSummary());
+    assertEquals("", histogram.getSummary());
+  }
+
+  @Test
+  public void testReturnCodes() throws IOException {
+    OneMeasurementHistogram histogram = new OneMeasurementHistogram("READ", new Properties());
+    histogram.reportReturnCode(0);
+    histogram.reportReturnCode(0);
+    histogram.reportReturnCode(-1);
+    // outside the range counted in the striped array
+    histogram.reportReturnCode(1000);
+    histogram.reportReturnCode(ReturnCodes.MIN_CODE - 1);
+
+    MapExporter exporter = new MapExporter();
+    histogram.exportMeasurements(exporter);
+    assertEquals("2", exporter.values.get("Return=0"));
+    assertEquals("1", exporter.values.get("Return=-1"));
+    assertEquals("1", exporter.values.get("Return=1000"));
+    assertEquals("1", exporter.values.get("Return=" + (ReturnCodes.MIN_CODE - 1)));
+    assertNull(exporter.values.get("Return=1"));
+  }
+}
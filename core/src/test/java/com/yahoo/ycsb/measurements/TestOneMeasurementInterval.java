@@ -0,0 +1,28 @@
+package com.yahoo.ycsb.measurements;
+
+import java.util.Properties;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestOneMeasurementInterval {
+
+  @Test
+  public void testSummaryCoversOneInterval() {
+    Properties props = new Properties();
+    OneMeasurementInterval m = new OneMeasurementInterval(new OneMeasurementHistogram("READ", props), props);
+
+    for (int i = 1; i <= 100; i++) {
+      m.measure(i);
+    }
+    assertEquals("[READ AverageLatency(us)=50.5 50thPercentileLatency(us)=50 95thPercentileLatency(us)=95"
+        + " 99thPercentileLatency(us)=99 MaxLatency(us)=100]", m.getSummary());
+
+    // nothing measured in the next interval
+    assertEquals("", m.getSummary());
+
+    m.measure(1000);
+    m.measure(1000);
+    assertEquals("[READ AverageLatency(us)=1000 50thPercentileLatency(us)=1000 95thPercentileLatency(us)=1000"
+        + " 99thPercentileLatency(us)=1000 MaxLatency(us)=1000]", m.getSummary());
+  }
+}
@@ -0,0 +1,72 @@
+package com.yahoo.ycsb.measurements;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestRawLatencyLog {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    File dir = File.createTempFile("rawlog", "");
+    dir.delete();
+    Properties props = new Properties();
+    props.setProperty(RawLatencyLog.DIRECTORY, dir.getPath());
+    props.setProperty(RawLatencyLog.SEGMENT_RECORDS, "100");
+
+    final RawLatencyLog log = new RawLatencyLog(props, 0);
+    final short read = log.operation("READ");
+    final short update = log.operation("UPDATE");
+    Thread[] threads = new Thread[3];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread() {
+        public void run() {
+          for (int i = 0; i < 250; i++) {
+            // the return code may be reported after another operation
+            // was appended
+            log.append(read, i * 1000000L, i);
+            log.append(update, i * 1000000L, i);
+            log.setReturnCode(read, 0);
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    log.close();
+
+    final int[] seen = new int[4];
+    RawLatencyLogReader.read(dir, new RawLatencyLogReader.Handler() {
+      public void operation(String operation, long start, int latency, int code) {
+        assertEquals(latency * 1000L, start);
+        if (operation.equals("READ")) {
+          seen[0]++;
+          assertEquals(0, code);
+        } else {
+          seen[1]++;
+          assertEquals(RawLatencyLog.NO_RETURN_CODE, code);
+        }
+      }
+    });
+    assertEquals(750, seen[0]);
+    assertEquals(750, seen[1]);
+    // 500 operations per thread in segments of 100
+    assertEquals(15, RawLatencyLogReader.segments(dir).length);
+
+    try {
+      new RawLatencyLog(props, 0);
+      fail("should not reuse a directory holding segments");
+    } catch (IOException e) {
+      // expected
+    }
+
+    for (File f : dir.listFiles()) {
+      f.delete();
+    }
+    dir.delete();
+  }
+}
@@ -0,0 +1,70 @@
+package com.yahoo.ycsb.measurements.exporter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestBinaryMeasurementsExporter {
+
+  private static void writeAll(MeasurementsExporter exporter) throws IOException {
+    exporter.write("OVERALL", "RunTime(ms)", 3018.0);
+    exporter.write("READ", "Operations", 154);
+    exporter.write("READ", "MinLatency(us)", -1);
+    for (int i = 0; i < 1000; i++) {
+      exporter.write("READ", Integer.toString(i), i % 7);
+    }
+    exporter.write("READ", ">1000", 0);
+    exporter.write("READ", "007", 7);
+    exporter.write("UPDATE", "Average", "1000000, 15049");
+    exporter.write("UPDATE", "-5", 2.5);
+    exporter.write("UPDATE", "Return=0", Integer.MAX_VALUE);
+    exporter.write("UPDATE", "Return=-1", Integer.MIN_VALUE);
+  }
+
+  private static String text(byte[] binary) throws IOException {
+    ByteArrayOutputStream text = new ByteArrayOutputStream();
+    MeasurementsExporter exporter = new TextMeasurementsExporter(text);
+    BinaryMeasurementsReader reader = new BinaryMeasurementsReader(new ByteArrayInputStream(binary));
+    reader.export(exporter);
+    reader.close();
+    exporter.close();
+    return text.toString("UTF-8");
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    MeasurementsExporter text = new TextMeasurementsExporter(expected);
+    writeAll(text);
+    text.close();
+
+    for (String compression : new String[]{"none", "gzip"}) {
+      Properties props = new Properties();
+      props.setProperty(BinaryMeasurementsExporter.COMPRESSION, compression);
+      ByteArrayOutputStream binary = new ByteArrayOutputStream();
+      MeasurementsExporter exporter = new BinaryMeasurementsExporter(binary, props);
+      writeAll(exporter);
+      exporter.close();
+
+      assertEquals(compression, expected.toString("UTF-8"), text(binary.toByteArray()));
+      // a histogram bucket takes three bytes without compression
+      assertTrue(compression + " " + binary.size(), binary.size() < expected.size() / 4);
+    }
+  }
+
+  @Test
+  public void testUnknownCompressionWritesNothing() throws IOException {
+    Properties props = new Properties();
+    props.setProperty(BinaryMeasurementsExporter.COMPRESSION, "zip");
+    ByteArrayOutputStream binary = new ByteArrayOutputStream();
+    try {
+      new BinaryMeasurementsExporter(binary, props);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals(0, binary.size());
+    }
+  }
+}
@@ -0,0 +1,263 @@
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DBWrapper;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.Vector;
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestCoreWorkload {
+
+  static CoreWorkload newWorkload(String reuse) throws Exception {
+    return newWorkload(reuse, "uniform");
+  }
+
+  static CoreWorkload newWorkload(String reuse, String requestdistribution) throws Exception {
+    return newWorkload(reuse, requestdistribution, new Properties());
+  }
+
+  static CoreWorkload newWorkload(String reuse, String requestdistribution, Properties props) throws Exception {
+    props.setProperty(Client.OPERATION_COUNT_PROPERTY, "1000");
+    props.setProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY, requestdistribution);
+    props.setProperty(Client.RECORD_COUNT_PROPERTY, "1000");
+    props.setProperty(CoreWorkload.FIELD_COUNT_PROPERTY, "3");
+    props.setProperty(CoreWorkload.FIELD_LENGTH_PROPERTY, "10");
+    props.setProperty(CoreWorkload.REUSE_OBJECTS_PROPERTY, reuse);
+    Measurements.setProperties(props);
+    CoreWorkload workload = new CoreWorkload();
+    workload.init(props);
+    return workload;
+  }
+
+  /**
+   * Keeps the operations it is asked for
+   */
+  static class LoggingDB extends DB {
+    List<String> log = new ArrayList<String>();
+
+    String lengths(HashMap<String, ByteIterator> values) {
+      StringBuilder lengths = new StringBuilder();
+      for (String field : new TreeSet<String>(values.keySet())) {
+        lengths.append(field).append('=').append(values.get(field).bytesLeft()).append(' ');
+      }
+      return lengths.toString();
+    }
+
+    public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+      log.add("read " + key + " " + fields);
+      return 0;
+    }
+
+    public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+      log.add("scan " + startkey + " " + recordcount + " " + fields);
+      return 0;
+    }
+
+    public int update(String table, String key, HashMap<String, ByteIterator> values) {
+      log.add("update " + key + " " + lengths(values));
+      return 0;
+    }
+
+    public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+      log.add("insert " + key + " " + lengths(values));
+      return 0;
+    }
+
+    public int delete(String table, String key) {
+      log.add("delete " + key);
+      return 0;
+    }
+  }
+
+  static Properties mixed(String seed, String insertproportion) {
+    Properties props = new Properties();
+    props.setProperty(Utils.SEED_PROPERTY, seed);
+    props.setProperty(CoreWorkload.READ_PROPORTION_PROPERTY, "0.4");
+    props.setProperty(CoreWorkload.UPDATE_PROPORTION_PROPERTY, "0.2");
+    props.setProperty(CoreWorkload.SCAN_PROPORTION_PROPERTY, "0.2");
+    props.setProperty(CoreWorkload.INSERT_PROPORTION_PROPERTY, insertproportion);
+    props.setProperty(CoreWorkload.READMODIFYWRITE_PROPORTION_PROPERTY, "0.1");
+    props.setProperty(CoreWorkload.READ_ALL_FIELDS_PROPERTY, "false");
+    props.setProperty(CoreWorkload.FIELD_LENGTH_DISTRIBUTION_PROPERTY, "uniform");
+    return props;
+  }
+
+  static List<String> run(CoreWorkload workload, int threadid, int operations) throws Exception {
+    LoggingDB db = new LoggingDB();
+    Object state = workload.initThread(null, threadid, 2);
+    for (int i = 0; i < operations && workload.doTransaction(db, state); i++) {
+    }
+    return db.log;
+  }
+
+  static int length(ByteIterator data) {
+    int length = 0;
+    while (data.hasNext()) {
+      data.nextByte();
+      length++;
+    }
+    return length;
+  }
+
+  @Test
+  public void testReusedObjectsHoldTheSameOperations() throws Exception {
+    CoreWorkload workload = newWorkload("true");
+    CoreWorkload.ThreadState state = (CoreWorkload.ThreadState) workload.initThread(null, 0, 1);
+
+    long[] keys = {0, 7, 1234567890L, Long.MAX_VALUE};
+    for (long key : keys) {
+      assertEquals(workload.buildKeyName(key), workload.buildKeyName(key, state));
+    }
+
+    // the same values, refilled
+    HashMap<String, ByteIterator> values = state.values();
+    assertEquals(3, values.size());
+    for (ByteIterator data : values.values()) {
+      assertEquals(10, length(data));
+    }
+    assertSame(values, state.values());
+    for (ByteIterator data : values.values()) {
+      assertEquals(10, length(data));
+    }
+
+    HashMap<String, ByteIterator> update = state.update(2);
+    assertEquals(1, update.size());
+    assertEquals(10, length(update.get("field2")));
+    assertTrue(state.fields(1).contains("field1"));
+  }
+
+  @Test
+  public void testObjectsAreNotReusedByDefault() throws Exception {
+    CoreWorkload workload = newWorkload("false");
+    CoreWorkload.ThreadState state = (CoreWorkload.ThreadState) workload.initThread(null, 0, 1);
+    assertNotSame(state.values(), state.values());
+    assertNotSame(state.result(), state.result());
+  }
+
+  @Test
+  public void testEachThreadHasItsOwnGenerators() throws Exception {
+    String[] distributions = {"uniform", "zipfian", "latest", "hotspot"};
+    for (String distribution : distributions) {
+      CoreWorkload workload = newWorkload("false", distribution);
+      CoreWorkload.ThreadState first = (CoreWorkload.ThreadState) workload.initThread(null, 0, 2);
+      CoreWorkload.ThreadState second = (CoreWorkload.ThreadState) workload.initThread(null, 1, 2);
+      assertNotSame(first.keychooser, second.keychooser);
+      assertNotSame(workload.keychooser, first.keychooser);
+      assertSame(workload.keychooser.getClass(), first.keychooser.getClass());
+      assertNotSame(first.operationchooser, second.operationchooser);
+      assertNotSame(first.fieldchooser, second.fieldchooser);
+      assertNotSame(first.scanlength, second.scanlength);
+
+      for (int i = 0; i < 10000; i++) {
+        int keynum = first.nextKeynum();
+        assertTrue(distribution, keynum >= 0 && keynum < 1000);
+        int field = first.fieldchooser.nextInt();
+        assertTrue(field >= 0 && field < 3);
+      }
+    }
+  }
+
+  @Test
+  public void testSameSeedSameOperations() throws Exception {
+    // no inserts, whose keys depend on the interleaving
+    Properties props = mixed("42", "0");
+    Utils.setRandom(props);
+    CoreWorkload workload = newWorkload("false", "zipfian", props);
+    List<String> first = run(workload, 0, 1000);
+    List<String> second = run(workload, 1, 1000);
+
+    Utils.setRandom(props);
+    workload = newWorkload("true", "zipfian", mixed("42", "0"));
+    // the threads start in the other order
+    assertEquals(second, run(workload, 1, 1000));
+    assertFalse(first.equals(second));
+
+    props.setProperty(Utils.SEED_PROPERTY, "43");
+    Utils.setRandom(props);
+    workload = newWorkload("false", "zipfian", mixed("43", "0"));
+    assertFalse(first.equals(run(workload, 0, 1000)));
+  }
+
+  @Test
+  public void testReplayedOperationsAreTheRecordedOnes() throws Exception {
+    File trace = File.createTempFile("trace", "");
+    trace.delete();
+    String name = trace.getPath();
+    try {
+      Properties props = mixed("7", "0.1");
+      props.setProperty(CoreWorkload.TRACE_RECORD_PROPERTY, name);
+      Utils.setRandom(props);
+      CoreWorkload workload = newWorkload("false", "latest", props);
+      List<String> recorded = run(workload, 0, 500);
+      workload.cleanup();
+      assertTrue(recorded.toString().contains("insert"));
+
+      props = mixed("8", "0.1");
+      props.setProperty(CoreWorkload.TRACE_REPLAY_PROPERTY, name);
+      Utils.setRandom(props);
+      workload = newWorkload("false", "latest", props);
+      // stops at the end of the trace
+      assertEquals(recorded, run(workload, 0, 1000));
+      assertEquals(1, workload.replays.size());
+      workload.cleanup();
+      assertTrue(workload.replays.isEmpty());
+    } finally {
+      new File(OperationTrace.fileName(name, 0)).delete();
+    }
+  }
+
+  /**
+   * @return the number of read-modify-write transactions measured so far
+   */
+  static int readModifyWrites() throws Exception {
+    final int[] operations = {0};
+    Measurements.getMeasurements().exportMeasurements(new MeasurementsExporter() {
+      public void write(String metric, String measurement, int i) {
+        if (metric.equals("READ-MODIFY-WRITE") && measurement.equals("Operations")) {
+          operations[0] = i;
+        }
+      }
+
+      public void write(String metric, String measurement, double d) {
+      }
+
+      public void write(String metric, String measurement, String s) {
+      }
+
+      public void close() {
+      }
+    });
+    return operations[0];
+  }
+
+  @Test
+  public void testReadModifyWriteInFlightIsNotMeasured() throws Exception {
+    CoreWorkload workload = newWorkload("false");
+    LoggingDB db = new LoggingDB();
+    CoreWorkload.ThreadState state = (CoreWorkload.ThreadState) workload.initThread(null, 0, 1);
+    int before = readModifyWrites();
+    workload.doTransactionReadModifyWrite(db, state);
+    assertEquals(before + 1, readModifyWrites());
+
+    Properties props = new Properties();
+    props.setProperty(DBWrapper.INFLIGHT, "2");
+    workload = newWorkload("false", "uniform", props);
+    state = (CoreWorkload.ThreadState) workload.initThread(null, 0, 1);
+    workload.doTransactionReadModifyWrite(db, state);
+    // both operations were executed, but not measured as a whole
+    assertEquals(4, db.log.size());
+    assertEquals(before + 1, readModifyWrites());
+  }
+}